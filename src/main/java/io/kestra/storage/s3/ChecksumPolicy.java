@@ -0,0 +1,60 @@
+package io.kestra.storage.s3;
+
+import jakarta.annotation.Nullable;
+
+import software.amazon.awssdk.services.s3.model.ChecksumAlgorithm;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+
+/**
+ * The checksum computed while uploading files, and validated while downloading them.
+ */
+public enum ChecksumPolicy {
+    OFF(null),
+    CRC32C(ChecksumAlgorithm.CRC32_C),
+    CRC64NVME(ChecksumAlgorithm.CRC64_NVME),
+    SHA256(ChecksumAlgorithm.SHA256);
+
+    private final ChecksumAlgorithm algorithm;
+
+    ChecksumPolicy(ChecksumAlgorithm algorithm) {
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * @return the algorithm to request, or null when checksums are disabled
+     */
+    ChecksumAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    boolean isEnabled() {
+        return this != OFF;
+    }
+
+    /**
+     * @return the base64-encoded checksum of this policy in the response, or null if it has none
+     */
+    @Nullable
+    String checksum(GetObjectResponse response) {
+        return switch (this) {
+            case OFF -> null;
+            case CRC32C -> response.checksumCRC32C();
+            case CRC64NVME -> response.checksumCRC64NVME();
+            case SHA256 -> response.checksumSHA256();
+        };
+    }
+
+    /**
+     * @return the base64-encoded checksum of this policy in the response, or null if it has none
+     */
+    @Nullable
+    String checksum(HeadObjectResponse response) {
+        return switch (this) {
+            case OFF -> null;
+            case CRC32C -> response.checksumCRC32C();
+            case CRC64NVME -> response.checksumCRC64NVME();
+            case SHA256 -> response.checksumSHA256();
+        };
+    }
+}
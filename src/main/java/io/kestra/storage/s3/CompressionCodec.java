@@ -0,0 +1,9 @@
+package io.kestra.storage.s3;
+
+/**
+ * The codec used to compress the files before storing them.
+ */
+public enum CompressionCodec {
+    NONE,
+    GZIP
+}
@@ -8,13 +8,26 @@ public class MetadataUtils {
     private static final Pattern METADATA_KEY_WORD_SEPARATOR = Pattern.compile("_([a-z])");
     private static final Pattern UPPERCASE = Pattern.compile("([A-Z])");
 
+    /**
+     * Stored metadata keys set by the storage itself, which are not returned with the user metadata.
+     */
+    static final String CODEC = "kestra_codec";
+    static final String ORIGINAL_SIZE = "kestra_original_size";
+
+    /**
+     * @throws IllegalArgumentException if a key is stored like one of the keys set by the storage, as it would be overwritten
+     */
     public static Map<String, String> toStoredMetadata(Map<String, String> metadata) {
         if (metadata == null) {
             return null;
         }
-        return metadata.entrySet().stream()
+        Map<String, String> storedMetadata = metadata.entrySet().stream()
             .map(entry -> Map.entry(UPPERCASE.matcher(entry.getKey()).replaceAll("_$1").toLowerCase(), entry.getValue()))
             .collect(HashMap::new, (m, v) -> m.put(v.getKey(), v.getValue()), HashMap::putAll);
+        if (storedMetadata.containsKey(CODEC) || storedMetadata.containsKey(ORIGINAL_SIZE)) {
+            throw new IllegalArgumentException("The metadata keys 'kestraCodec' and 'kestraOriginalSize' are reserved by the storage");
+        }
+        return storedMetadata;
     }
 
     public static Map<String, String> toRetrievedMetadata(Map<String, String> metadata) {
@@ -22,6 +35,7 @@ public class MetadataUtils {
             return null;
         }
         return metadata.entrySet().stream()
+            .filter(entry -> !entry.getKey().equals(CODEC) && !entry.getKey().equals(ORIGINAL_SIZE))
             .map(
                 entry -> Map.entry(
                     METADATA_KEY_WORD_SEPARATOR.matcher(entry.getKey())
@@ -30,4 +44,12 @@ public class MetadataUtils {
                 )
             ).collect(HashMap::new, (m, v) -> m.put(v.getKey(), v.getValue()), HashMap::putAll);
     }
+
+    /**
+     * Returns the size of a file before it was compressed, or null if it was not compressed.
+     */
+    static Long originalSize(Map<String, String> storedMetadata) {
+        String originalSize = storedMetadata == null ? null : storedMetadata.get(ORIGINAL_SIZE);
+        return originalSize == null ? null : Long.valueOf(originalSize);
+    }
 }
@@ -0,0 +1,171 @@
+package io.kestra.storage.s3;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.Nullable;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsRequest;
+import software.amazon.awssdk.services.s3.model.DeletedObject;
+import software.amazon.awssdk.services.s3.model.ObjectIdentifier;
+import software.amazon.awssdk.services.s3.model.S3Error;
+
+/**
+ * Deletes keys with DeleteObjects batches sent on the async client.
+ * <p>
+ * Keys are grouped in batches of 1000, the maximum allowed by S3, and each full batch is sent right away while the caller
+ * keeps producing keys, with at most {@code concurrency} batches in flight.
+ * The keys S3 refused to delete are collected and reported together by {@link #complete()}, except the ones throttled
+ * with a Slow Down error, which are sent again in new batches after a backoff.
+ * When a rate limiter is given, each batch waits for as many permits as it has keys.
+ */
+final class S3BatchDeleter {
+    // the maximum number of keys of a DeleteObjects request
+    static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 10;
+    private static final int MAX_THROTTLED_RETRIES = 3;
+    private static final long THROTTLED_RETRY_DELAY_MILLIS = 200;
+    private static final String SLOW_DOWN = "SlowDown";
+
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucket;
+    private final Semaphore permits;
+    @Nullable
+    private final S3RateLimiter rateLimiter;
+
+    private List<ObjectIdentifier> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    private final Set<CompletableFuture<?>> inFlightRequests = ConcurrentHashMap.newKeySet();
+    private final Queue<String> deletedKeys = new ConcurrentLinkedQueue<>();
+    private final Queue<S3Error> errors = new ConcurrentLinkedQueue<>();
+    private final Queue<S3Error> throttledErrors = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    S3BatchDeleter(S3AsyncClient s3AsyncClient, String bucket, int concurrency, @Nullable S3RateLimiter rateLimiter) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucket = bucket;
+        this.permits = new Semaphore(concurrency);
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Adds a key to the current batch, sending it if it is full. Blocks while the maximum number of batches are in flight.
+     */
+    void delete(String key) throws IOException {
+        batch.add(ObjectIdentifier.builder().key(key).build());
+        if (batch.size() >= MAX_BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    /**
+     * Sends the last batch, waits for all of them and returns the deleted keys.
+     *
+     * @throws IOException if a batch request failed or if some keys could not be deleted
+     */
+    List<String> complete() throws IOException {
+        for (int retry = 0; ; retry++) {
+            flush();
+            CompletableFuture.allOf(inFlightRequests.toArray(CompletableFuture[]::new))
+                .exceptionally(throwable -> null)
+                .join();
+            throwIfFailed();
+
+            if (throttledErrors.isEmpty() || retry >= MAX_THROTTLED_RETRIES) {
+                errors.addAll(throttledErrors);
+                break;
+            }
+
+            sleep(THROTTLED_RETRY_DELAY_MILLIS << retry);
+            S3Error throttled;
+            while ((throttled = throttledErrors.poll()) != null) {
+                delete(throttled.key());
+            }
+        }
+
+        if (!errors.isEmpty()) {
+            String reported = errors.stream()
+                .limit(MAX_REPORTED_ERRORS)
+                .map(error -> error.key() + " (" + error.code() + ": " + error.message() + ")")
+                .collect(Collectors.joining(", "));
+            throw new IOException("Failed to delete " + errors.size() + " object(s), " + deletedKeys.size() + " deleted: " + reported
+                + (errors.size() > MAX_REPORTED_ERRORS ? ", ..." : ""));
+        }
+        return List.copyOf(deletedKeys);
+    }
+
+    private void flush() throws IOException {
+        throwIfFailed();
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<ObjectIdentifier> keys = batch;
+        batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try {
+            if (rateLimiter != null) {
+                rateLimiter.acquire(keys.getFirst().key(), keys.size());
+            }
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+
+        DeleteObjectsRequest request = DeleteObjectsRequest.builder()
+            .bucket(bucket)
+            .delete(builder -> builder.objects(keys))
+            .build();
+
+        CompletableFuture<?> future = s3AsyncClient.deleteObjects(request)
+            .whenComplete((response, throwable) -> {
+                if (throwable != null) {
+                    failure.compareAndSet(null, throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                } else {
+                    response.deleted().stream().map(DeletedObject::key).forEach(deletedKeys::add);
+                    for (S3Error error : response.errors()) {
+                        if (SLOW_DOWN.equals(error.code())) {
+                            throttledErrors.add(error);
+                        } else {
+                            errors.add(error);
+                        }
+                    }
+                    if (rateLimiter != null && response.errors().stream().anyMatch(error -> SLOW_DOWN.equals(error.code()))) {
+                        rateLimiter.onThrottled(keys.getFirst().key());
+                    }
+                }
+                permits.release();
+            });
+        inFlightRequests.add(future);
+        future.whenComplete((response, throwable) -> inFlightRequests.remove(future));
+    }
+
+    private static void sleep(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private void throwIfFailed() {
+        Throwable throwable = failure.get();
+        if (throwable == null) {
+            return;
+        }
+        if (throwable instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        throw new CompletionException(throwable);
+    }
+}
@@ -0,0 +1,12 @@
+package io.kestra.storage.s3;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * The outcome of one item of a bulk operation of {@link S3Storage}: either its value, or the reason why it failed.
+ */
+public record S3BulkResult<T>(@Nullable T value, @Nullable Throwable failure) {
+    public boolean isSuccessful() {
+        return failure == null;
+    }
+}
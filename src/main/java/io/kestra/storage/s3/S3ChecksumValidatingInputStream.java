@@ -0,0 +1,180 @@
+package io.kestra.storage.s3;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+/**
+ * Computes the checksum of an object while it is read, and compares it to the full-object checksum stored with it
+ * once the end of the stream is reached. It is used for the responses to ranged requests, which carry no checksum
+ * for the SDK to validate, when they turn out to cover the whole object.
+ * <p>
+ * The expected checksum is only needed at the end of the stream, so it can be fetched while the object is read.
+ * When it is unknown, because the object was stored without a checksum of the policy, or with a composite checksum
+ * of its parts, nothing is validated.
+ */
+final class S3ChecksumValidatingInputStream extends FilterInputStream {
+    private final String key;
+    private final CompletableFuture<String> expectedChecksum;
+    private final Checksum checksum;
+    private final MessageDigest digest;
+    private boolean validated;
+
+    /**
+     * @param expectedChecksum the base64-encoded checksum stored with the object, completed with null when it is unknown
+     */
+    S3ChecksumValidatingInputStream(InputStream in, ChecksumPolicy policy, String key, CompletableFuture<String> expectedChecksum) {
+        super(in);
+        this.key = key;
+        this.expectedChecksum = expectedChecksum;
+        this.checksum = switch (policy) {
+            case CRC32C -> new CRC32C();
+            case CRC64NVME -> new Crc64Nvme();
+            default -> null;
+        };
+        this.digest = policy == ChecksumPolicy.SHA256 ? sha256() : null;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int read = super.read();
+        if (read < 0) {
+            validate();
+        } else {
+            update(new byte[]{(byte) read}, 0, 1);
+        }
+        return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read < 0) {
+            validate();
+        } else {
+            update(b, off, read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // every byte must go through the checksum
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // a stream closed before its end is not validated
+        expectedChecksum.cancel(true);
+        super.close();
+    }
+
+    private void update(byte[] b, int off, int len) {
+        if (checksum != null) {
+            checksum.update(b, off, len);
+        } else if (digest != null) {
+            digest.update(b, off, len);
+        }
+    }
+
+    private void validate() throws IOException {
+        if (validated) {
+            return;
+        }
+        validated = true;
+
+        String expected = S3Futures.join(expectedChecksum.exceptionally(throwable -> null));
+        if (expected == null || expected.contains("-")) {
+            // no checksum of the policy, or a composite one which only covers the parts
+            return;
+        }
+        String actual = Base64.getEncoder().encodeToString(value());
+        if (!actual.equals(expected)) {
+            throw new IOException("Checksum mismatch for " + key + ": expected " + expected + " but got " + actual);
+        }
+    }
+
+    private byte[] value() {
+        if (digest != null) {
+            return digest.digest();
+        }
+        // S3 encodes the CRCs in big-endian order, on their width
+        if (checksum instanceof Crc64Nvme) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(checksum.getValue()).array();
+        }
+        return ByteBuffer.allocate(Integer.BYTES).putInt((int) checksum.getValue()).array();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The CRC-64/NVME checksum used by S3, which the JDK doesn't provide.
+     */
+    static final class Crc64Nvme implements Checksum {
+        // the reflected polynomial 0xAD93D23594C93659
+        private static final long POLYNOMIAL = 0x9A6C9329AC4BC9B5L;
+        private static final long[] TABLE = new long[256];
+
+        static {
+            for (int i = 0; i < TABLE.length; i++) {
+                long crc = i;
+                for (int bit = 0; bit < 8; bit++) {
+                    crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+                }
+                TABLE[i] = crc;
+            }
+        }
+
+        private long crc = -1L;
+
+        @Override
+        public void update(int b) {
+            crc = TABLE[(int) ((crc ^ b) & 0xFF)] ^ (crc >>> 8);
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                update(b[i]);
+            }
+        }
+
+        @Override
+        public long getValue() {
+            return ~crc;
+        }
+
+        @Override
+        public void reset() {
+            crc = -1L;
+        }
+    }
+}
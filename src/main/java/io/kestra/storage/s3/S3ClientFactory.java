@@ -1,14 +1,20 @@
 package io.kestra.storage.s3;
 
 import java.net.URI;
+import java.time.Duration;
 
 import org.apache.commons.lang3.StringUtils;
 
+import jakarta.annotation.Nullable;
+
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentials;
 import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.core.retry.RetryMode;
 import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
@@ -19,14 +25,27 @@ import software.amazon.awssdk.services.sts.StsClient;
 import software.amazon.awssdk.services.sts.StsClientBuilder;
 import software.amazon.awssdk.services.sts.auth.StsAssumeRoleCredentialsProvider;
 import software.amazon.awssdk.services.sts.model.AssumeRoleRequest;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
 
 public final class S3ClientFactory {
+    // how long before the expiration of assumed role credentials they are refreshed, sessions last at least 15 minutes
+    private static final Duration STS_PREFETCH_TIME = Duration.ofMinutes(5);
 
-    public static S3Client getS3Client(final S3Config s3Config) {
+    /**
+     * Builds the synchronous client with the given credentials provider, which is not closed with the client.
+     */
+    public static S3Client getS3Client(final S3Config s3Config, final AwsCredentialsProvider credentialsProvider) {
+        return getS3Client(s3Config, credentialsProvider, null);
+    }
+
+    /**
+     * Builds the synchronous client, whose requests are paced by the given rate limiter if any.
+     */
+    static S3Client getS3Client(final S3Config s3Config, final AwsCredentialsProvider credentialsProvider, @Nullable final S3RateLimiter rateLimiter) {
         S3ClientBuilder clientBuilder = S3Client
             .builder()
             // Use the httpClientBuilder to delegate the lifecycle management of the HTTP client to the AWS SDK
-            .httpClientBuilder(serviceDefaults -> ApacheHttpClient.builder().build());
+            .httpClientBuilder(serviceDefaults -> httpClientBuilder(s3Config).build());
 
         if (s3Config.getEndpoint() != null) {
             clientBuilder.endpointOverride(URI.create(s3Config.getEndpoint()));
@@ -36,13 +55,26 @@ public final class S3ClientFactory {
             clientBuilder.region(Region.of(s3Config.getRegion()));
         }
 
+        if (rateLimiter != null) {
+            // adaptive retries also delay the attempts of the whole client once S3 starts throttling it
+            clientBuilder.overrideConfiguration(override -> override
+                .retryStrategy(RetryMode.ADAPTIVE_V2)
+                .addExecutionInterceptor(new S3ThrottlingInterceptor(rateLimiter))
+            );
+        }
+
         return clientBuilder
             .forcePathStyle(s3Config.isForcePathStyle())
-            .credentialsProvider(getCredentials(s3Config))
+            .requestChecksumCalculation(requestChecksumCalculation(s3Config))
+            .responseChecksumValidation(responseChecksumValidation(s3Config))
+            .credentialsProvider(credentialsProvider)
             .build();
     }
 
-    public static S3AsyncClient getAsyncS3Client(final S3Config s3Config) {
+    /**
+     * Builds the AWS CRT client with the given credentials provider, which is not closed with the client.
+     */
+    public static S3AsyncClient getAsyncS3Client(final S3Config s3Config, final AwsCredentialsProvider credentialsProvider) {
         S3CrtAsyncClientBuilder clientBuilder = S3AsyncClient.crtBuilder();
 
         if (s3Config.getEndpoint() != null) {
@@ -53,20 +85,95 @@ public final class S3ClientFactory {
             clientBuilder.region(Region.of(s3Config.getRegion()));
         }
 
+        if (s3Config.getMultipartPartSize() != null) {
+            // the CRT client switches to parallel part requests, including UploadPartCopy for copies, above this size
+            clientBuilder.minimumPartSizeInBytes(s3Config.getMultipartPartSize());
+        }
+
+        if (s3Config.getAsyncTargetThroughputInGbps() != null) {
+            clientBuilder.targetThroughputInGbps(s3Config.getAsyncTargetThroughputInGbps());
+        }
+
+        if (s3Config.getAsyncMaxConcurrency() != null) {
+            clientBuilder.maxConcurrency(s3Config.getAsyncMaxConcurrency());
+        }
+
+        if (s3Config.getAsyncInitialReadBufferSize() != null) {
+            clientBuilder.initialReadBufferSizeInBytes(s3Config.getAsyncInitialReadBufferSize());
+        }
+
         return clientBuilder
             .forcePathStyle(s3Config.isForcePathStyle())
-            .credentialsProvider(getCredentials(s3Config))
+            .requestChecksumCalculation(requestChecksumCalculation(s3Config))
+            .responseChecksumValidation(responseChecksumValidation(s3Config))
+            .credentialsProvider(credentialsProvider)
             .build();
     }
 
+    /**
+     * Builds the HTTP client of the synchronous client, leaving the AWS SDK defaults for the settings which are not configured.
+     */
+    private static ApacheHttpClient.Builder httpClientBuilder(final S3Config s3Config) {
+        ApacheHttpClient.Builder builder = ApacheHttpClient.builder();
+
+        if (s3Config.getHttpMaxConnections() != null) {
+            builder.maxConnections(s3Config.getHttpMaxConnections());
+        }
+        if (s3Config.getHttpConnectionTimeout() != null) {
+            builder.connectionTimeout(positive("httpConnectionTimeout", s3Config.getHttpConnectionTimeout()));
+        }
+        if (s3Config.getHttpSocketTimeout() != null) {
+            builder.socketTimeout(positive("httpSocketTimeout", s3Config.getHttpSocketTimeout()));
+        }
+        if (s3Config.getHttpConnectionAcquisitionTimeout() != null) {
+            builder.connectionAcquisitionTimeout(positive("httpConnectionAcquisitionTimeout", s3Config.getHttpConnectionAcquisitionTimeout()));
+        }
+        if (s3Config.getHttpTcpKeepAlive() != null) {
+            builder.tcpKeepAlive(s3Config.getHttpTcpKeepAlive());
+        }
+        if (s3Config.getHttpConnectionMaxIdleTime() != null) {
+            builder.connectionMaxIdleTime(positive("httpConnectionMaxIdleTime", s3Config.getHttpConnectionMaxIdleTime()));
+        }
+        if (s3Config.getHttpIdleConnectionReaper() != null) {
+            builder.useIdleConnectionReaper(s3Config.getHttpIdleConnectionReaper());
+        }
+        return builder;
+    }
+
+    private static Duration positive(final String property, final Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("'" + property + "' must be a positive duration, got " + duration);
+        }
+        return duration;
+    }
+
+    /**
+     * With checksums disabled, they are only computed and validated for the operations which require them,
+     * which none of the storage operations do.
+     */
+    private static boolean checksumsEnabled(final S3Config s3Config) {
+        return s3Config.getChecksumPolicy() == null || s3Config.getChecksumPolicy().isEnabled();
+    }
+
+    private static RequestChecksumCalculation requestChecksumCalculation(final S3Config s3Config) {
+        return checksumsEnabled(s3Config) ? RequestChecksumCalculation.WHEN_SUPPORTED : RequestChecksumCalculation.WHEN_REQUIRED;
+    }
+
+    private static ResponseChecksumValidation responseChecksumValidation(final S3Config s3Config) {
+        return checksumsEnabled(s3Config) ? ResponseChecksumValidation.WHEN_SUPPORTED : ResponseChecksumValidation.WHEN_REQUIRED;
+    }
+
     /**
      * Factory method for constructing a new {@link AwsCredentialsProvider} for the given config. If no specific
      * credential provider can be resolved from the given config, then a new {@link DefaultCredentialsProvider} is returned.
+     * The provider is meant to be shared by all the clients of a storage. It is owned by the caller, which must close it
+     * once the clients are closed when it is {@link SdkAutoCloseable}, as an assumed role provider refreshes its session
+     * in the background with its own STS client.
      *
      * @param config The S3Config.
      * @return a new {@link AwsCredentialsProvider}.
      */
-    private static AwsCredentialsProvider getCredentials(final S3Config config) {
+    public static AwsCredentialsProvider getCredentials(final S3Config config) {
         // StsAssumeRoleCredentialsProvider
         if (StringUtils.isNotEmpty(config.getStsRoleArn())) {
             return stsAssumeRoleCredentialsProvider(config);
@@ -100,11 +207,13 @@ public final class S3ClientFactory {
 
     /**
      * Factory method for constructing a new {@link StsAssumeRoleCredentialsProvider} for the given config.
+     * The credentials are refreshed in the background before they expire, so that requests never wait for STS,
+     * and the role is assumed right away for the first requests not to wait either.
      *
      * @param config The S3Config.
-     * @return a new {@link StsAssumeRoleCredentialsProvider}.
+     * @return a new provider, which closes its {@link StsClient} when closed.
      */
-    private static StsAssumeRoleCredentialsProvider stsAssumeRoleCredentialsProvider(final S3Config config) {
+    private static AwsCredentialsProvider stsAssumeRoleCredentialsProvider(final S3Config config) {
         String roleSessionName = config.getStsRoleSessionName();
         roleSessionName = roleSessionName != null ? roleSessionName : "kestra-storage-s3-" + System.currentTimeMillis();
 
@@ -115,10 +224,21 @@ public final class S3ClientFactory {
             .externalId(config.getStsRoleExternalId())
             .build();
 
-        return StsAssumeRoleCredentialsProvider.builder()
-            .stsClient(stsClient(config))
+        StsClient stsClient = stsClient(config);
+        StsAssumeRoleCredentialsProvider provider = StsAssumeRoleCredentialsProvider.builder()
+            .stsClient(stsClient)
             .refreshRequest(assumeRoleRequest)
+            .asyncCredentialUpdateEnabled(true)
+            .prefetchTime(STS_PREFETCH_TIME)
             .build();
+        StsCredentialsProvider credentialsProvider = new StsCredentialsProvider(provider, stsClient);
+        try {
+            provider.resolveCredentials();
+        } catch (RuntimeException e) {
+            credentialsProvider.close();
+            throw e;
+        }
+        return credentialsProvider;
     }
 
     /**
@@ -145,4 +265,20 @@ public final class S3ClientFactory {
         }
         return builder.build();
     }
+
+    /**
+     * An assumed role credentials provider which owns its {@link StsClient}.
+     */
+    private record StsCredentialsProvider(StsAssumeRoleCredentialsProvider provider, StsClient stsClient) implements AwsCredentialsProvider, SdkAutoCloseable {
+        @Override
+        public AwsCredentials resolveCredentials() {
+            return provider.resolveCredentials();
+        }
+
+        @Override
+        public void close() {
+            provider.close();
+            stsClient.close();
+        }
+    }
 }
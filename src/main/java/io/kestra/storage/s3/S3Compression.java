@@ -0,0 +1,196 @@
+package io.kestra.storage.s3;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.kestra.core.storages.StorageObject;
+
+/**
+ * Gzip compression of the stored files. The codec and the original size of a compressed file are recorded in its metadata,
+ * so that it is decompressed when read whatever the current configuration, and its size is reported as before compression.
+ */
+final class S3Compression {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String GZIP = "gzip";
+
+    private S3Compression() {
+    }
+
+    /**
+     * Adds the metadata of a file compressed with gzip to the given stored metadata.
+     */
+    static Map<String, String> compressedMetadata(Map<String, String> storedMetadata, long originalSize) {
+        Map<String, String> metadata = storedMetadata == null ? new HashMap<>() : new HashMap<>(storedMetadata);
+        metadata.put(MetadataUtils.CODEC, GZIP);
+        metadata.put(MetadataUtils.ORIGINAL_SIZE, String.valueOf(originalSize));
+        return metadata;
+    }
+
+    static boolean isCompressed(Map<String, String> storedMetadata) {
+        return storedMetadata != null && GZIP.equals(storedMetadata.get(MetadataUtils.CODEC));
+    }
+
+    static byte[] compress(byte[] data) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 32);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, BUFFER_SIZE)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Compresses the given stream while it is read.
+     */
+    static InputStream compress(InputStream data) {
+        return new GzipCompressingInputStream(data);
+    }
+
+    /**
+     * Builds the object read from S3, decompressing its content if it was compressed.
+     * The gzip header is only read on the first read, so this can be called before the content is available.
+     */
+    static StorageObject toStorageObject(Map<String, String> storedMetadata, InputStream content) {
+        return new StorageObject(
+            MetadataUtils.toRetrievedMetadata(storedMetadata),
+            isCompressed(storedMetadata) ? new LazyGunzipInputStream(content) : content
+        );
+    }
+
+    /**
+     * Produces the gzip encoding of a stream as it is read, so the compressed content never needs to be held in memory.
+     */
+    private static final class GzipCompressingInputStream extends InputStream {
+        private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+        private final InputStream data;
+        private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        private final CRC32 crc = new CRC32();
+        private final byte[] input = new byte[BUFFER_SIZE];
+        private final byte[] output = new byte[BUFFER_SIZE];
+
+        private ByteBuffer pending = ByteBuffer.wrap(HEADER);
+        private boolean inputDone;
+        private boolean trailerDone;
+
+        GzipCompressingInputStream(InputStream data) {
+            this.data = data;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            Objects.checkFromIndexSize(off, len, b.length);
+            if (len == 0) {
+                return 0;
+            }
+            while (!pending.hasRemaining()) {
+                if (!fill()) {
+                    return -1;
+                }
+            }
+
+            int read = Math.min(len, pending.remaining());
+            pending.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            deflater.end();
+            data.close();
+        }
+
+        private boolean fill() throws IOException {
+            if (trailerDone) {
+                return false;
+            }
+            if (deflater.finished()) {
+                pending = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt((int) crc.getValue())
+                    .putInt((int) deflater.getBytesRead())
+                    .flip();
+                trailerDone = true;
+                return true;
+            }
+
+            if (!inputDone && deflater.needsInput()) {
+                int read = data.read(input);
+                if (read < 0) {
+                    inputDone = true;
+                    deflater.finish();
+                } else {
+                    crc.update(input, 0, read);
+                    deflater.setInput(input, 0, read);
+                }
+            }
+            pending = ByteBuffer.wrap(output, 0, deflater.deflate(output));
+            return true;
+        }
+    }
+
+    /**
+     * Decompresses a gzip stream, only opening it on first access.
+     */
+    private static final class LazyGunzipInputStream extends InputStream {
+        private final InputStream compressed;
+        private InputStream decompressed;
+
+        LazyGunzipInputStream(InputStream compressed) {
+            this.compressed = compressed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return decompressed().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return decompressed().read(b, off, len);
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return decompressed().skip(n);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return decompressed == null ? 0 : decompressed.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (decompressed != null) {
+                decompressed.close();
+            } else {
+                compressed.close();
+            }
+        }
+
+        private InputStream decompressed() throws IOException {
+            if (decompressed == null) {
+                decompressed = new GZIPInputStream(compressed, BUFFER_SIZE);
+            }
+            return decompressed;
+        }
+    }
+}
@@ -88,4 +88,325 @@ public interface S3Config {
     boolean isS3FilesCompatible();
 
     boolean isForcePathStyle();
+
+    @Schema(
+        title = "Maximum number of concurrent uploads.",
+        description = "Upload streams are read on a shared pool of virtual threads owned by the storage. " +
+                      "Once this limit is reached, additional uploads wait for a slot to be released."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getUploadConcurrency();
+
+    @Schema(
+        title = "Maximum number of directory markers remembered as existing.",
+        description = "Avoids checking and re-creating the parent directories of every uploaded file. " +
+                      "Entries are invalidated by the local deletes and moves, and expire after `directoryCacheTtl`, " +
+                      "so a directory removed by another process may be considered present until then. Set to 0 to disable the cache."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getDirectoryCacheSize();
+
+    @Schema(
+        title = "Time to live of the entries of the directory cache.",
+        description = "Must be positive when the directory cache is enabled."
+    )
+    @PluginProperty(group = "advanced")
+    java.time.Duration getDirectoryCacheTtl();
+
+    @Schema(
+        title = "Enable implicit directories mode.",
+        description = "When enabled, no zero-byte directory marker is written for the parents of stored objects: " +
+                      "directories are detected from the key prefixes returned by the listings. " +
+                      "An explicitly created directory still gets a single marker so that it exists while empty."
+    )
+    @PluginProperty(group = "advanced")
+    boolean isImplicitDirectories();
+
+    @Schema(
+        title = "Maximum number of concurrent listing requests for recursive listings.",
+        description = "When greater than 1, recursive listings (used by `allByPrefix` and `deleteByPrefix`) discover the " +
+                      "sub-prefixes using a delimiter and list them concurrently, instead of paging through the whole prefix " +
+                      "one request at a time. Keys are then no longer returned in lexicographical order."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getListingConcurrency();
+
+    @Schema(
+        title = "Maximum number of concurrent batch delete requests.",
+        description = "`deleteByPrefix` sends the listed keys in DeleteObjects batches of 1000 keys while the listing goes on. " +
+                      "This limits how many of these batches are in flight at the same time."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getDeleteConcurrency();
+
+    @Schema(
+        title = "Maximum number of concurrent copy requests when moving a directory.",
+        description = "The objects of a moved directory are copied concurrently, then their source keys are removed with " +
+                      "DeleteObjects batches."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getMoveConcurrency();
+
+    @Schema(
+        title = "Part size, in bytes, of multipart uploads and copies.",
+        description = "Objects larger than this size are uploaded, or copied when moved, as several parts sent in parallel. " +
+                      "Must be at least 5 MiB. Defaults to the one of the AWS CRT client (8 MiB)."
+    )
+    @PluginProperty(group = "advanced")
+    Long getMultipartPartSize();
+
+    @Schema(
+        title = "Maximum size, in bytes, of the files uploaded with a single request.",
+        description = "Up to this size, the uploaded content is read in memory and sent with a single PutObject request of " +
+                      "known length. Larger files are streamed with a multipart upload. Set to 0 to always stream."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getSinglePartUploadThreshold();
+
+    @Schema(
+        title = "Maximum size, in bytes, of the files downloaded with a single request.",
+        description = "Files up to this size are read with a single GetObject request, streamed as is. " +
+                      "When the size is not known in advance, only the first bytes up to this size are requested and the rest " +
+                      "of larger files is then downloaded like the large files. Set to 0 to always download files like the large ones, " +
+                      "see `parallelDownloadPrefetch`."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getSingleRequestDownloadThreshold();
+
+    @Schema(
+        title = "Size, in bytes, of the ranges requested in parallel when reading large files."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getParallelDownloadPartSize();
+
+    @Schema(
+        title = "Number of ranges downloaded ahead while a large file is read.",
+        description = "Files larger than `singleRequestDownloadThreshold` are read with byte-range requests, this many of them " +
+                      "being in flight while the current one is read. At most (prefetch + 1) x part size bytes are held in " +
+                      "memory per read file. Set to 0 to download them through the transfer manager instead, which is the only case " +
+                      "where the transfer manager is used for downloads."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getParallelDownloadPrefetch();
+
+    @Schema(
+        title = "Maximum number of requests in flight for the bulk operations.",
+        description = "Used by `putAll`, `getAll`, `existsAll` and `getAttributesAll`, which send the requests of all their " +
+                      "items concurrently up to this limit."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getBulkConcurrency();
+
+    @Schema(
+        title = "Maximum number of object attributes remembered between lookups.",
+        description = "Caches the result of the metadata requests made by `exists` and `getAttributes`, including missing keys. " +
+                      "Entries are invalidated by local writes, moves and deletes only, so changes made by another process " +
+                      "may not be seen until the entry expires. Set to 0, the default, to disable the cache."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getAttributeCacheSize();
+
+    @Schema(
+        title = "Time to live of the entries of the attribute cache.",
+        description = "Must be positive when the attribute cache is enabled."
+    )
+    @PluginProperty(group = "advanced")
+    java.time.Duration getAttributeCacheTtl();
+
+    @Schema(
+        title = "Directory of the local disk cache of the read files.",
+        description = "When set, read files are kept in this directory and served from it as long as they have not been " +
+                      "modified, which is checked with a conditional request on each read. Files are read with a single " +
+                      "request when this cache is enabled. They are kept in a subdirectory of their own, deleted on shutdown, " +
+                      "so the directory can be shared."
+    )
+    @PluginProperty(group = "advanced")
+    String getLocalCacheDirectory();
+
+    @Schema(
+        title = "Maximum number of bytes kept in the local disk cache.",
+        description = "The least recently read files are evicted once this size is reached. Larger files are not cached. " +
+                      "The files up to this size are fully downloaded to the disk before their first byte is returned, " +
+                      "larger ones are streamed."
+    )
+    @PluginProperty(group = "advanced")
+    Long getLocalCacheMaxBytes();
+
+    @Schema(
+        title = "Codec used to compress the stored files.",
+        description = "Files are compressed while being uploaded and decompressed when read, whatever this setting, as the codec " +
+                      "is recorded in their metadata. Only files whose size is known upfront are compressed: files up to the " +
+                      "single part upload threshold, and files copied from another S3 object. Larger files, which are streamed " +
+                      "with multipart uploads, are stored uncompressed, so raise `singlePartUploadThreshold` to compress them, " +
+                      "at the cost of buffering them in memory. The reported size of compressed files is the size " +
+                      "before compression. The metadata keys `kestraCodec` and `kestraOriginalSize` are reserved. Once compression has been enabled, a marker object recording it is stored under the path, " +
+                      "and the size of a listed file is then loaded from its attributes when it is requested, as listings only have " +
+                      "the stored size. Range reads are not supported on compressed files."
+    )
+    @PluginProperty(group = "advanced")
+    CompressionCodec getCompression();
+
+    @Schema(
+        title = "Minimum size in bytes of the files to compress."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getCompressionMinSize();
+
+    @Schema(
+        title = "Extensions of the files to compress.",
+        description = "Compressing files which are already compressed, like images or archives, is a waste. " +
+                      "An empty list compresses all the files."
+    )
+    @PluginProperty(group = "advanced")
+    java.util.List<String> getCompressedExtensions();
+
+    @Schema(
+        title = "Checksum computed on uploads and validated on downloads.",
+        description = "Checksums are computed while the data is streamed, for single requests and each part of multipart uploads, " +
+                      "and stored with the object. Files downloaded with a single request, or with parallel ranged requests, " +
+                      "are validated while they are read. The small files whose size is unknown are read with a range request, " +
+                      "whose response has no checksum: they are only validated when their attributes are cached, " +
+                      "or when `validateRangedReads` is enabled. Reads of a part of a file, with an offset or through a channel, " +
+                      "can't be validated, and neither can multipart uploads with a CRC32C or SHA256 checksum, " +
+                      "whose checksum covers the parts. CRC32C is the cheapest, CRC64NVME also covers multipart uploads. " +
+                      "Set to OFF with endpoints which don't support additional checksums, or to save CPU."
+    )
+    @PluginProperty(group = "advanced")
+    ChecksumPolicy getChecksumPolicy();
+
+    @Schema(
+        title = "Whether the files read with a range request are always validated against their checksum.",
+        description = "A file whose size is unknown is read with a range request, as it may be too large for a single one, " +
+                      "and the response to a range request has no checksum. When enabled, the checksum of the file is fetched " +
+                      "with a HeadObject request sent alongside, which doubles the requests of small file reads " +
+                      "when the attribute cache doesn't already have it. Defaults to false."
+    )
+    @PluginProperty(group = "advanced")
+    boolean isValidateRangedReads();
+
+    @Schema(
+        title = "Maximum number of connections of the HTTP client.",
+        description = "The synchronous client is used for metadata requests, listings and small files. " +
+                      "Requests wait for a connection once they are all in use."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getHttpMaxConnections();
+
+    @Schema(
+        title = "Timeout to establish a connection of the HTTP client.",
+        description = "Defaults to the one of the AWS SDK (2 seconds)."
+    )
+    @PluginProperty(group = "advanced")
+    java.time.Duration getHttpConnectionTimeout();
+
+    @Schema(
+        title = "Timeout of the HTTP client to wait for data on an established connection.",
+        description = "Defaults to the one of the AWS SDK (30 seconds)."
+    )
+    @PluginProperty(group = "advanced")
+    java.time.Duration getHttpSocketTimeout();
+
+    @Schema(
+        title = "Timeout of the HTTP client to wait for a free connection of the pool.",
+        description = "Defaults to the one of the AWS SDK (10 seconds)."
+    )
+    @PluginProperty(group = "advanced")
+    java.time.Duration getHttpConnectionAcquisitionTimeout();
+
+    @Schema(
+        title = "Whether the HTTP client enables TCP keep-alive on its connections.",
+        description = "Defaults to the one of the AWS SDK (disabled)."
+    )
+    @PluginProperty(group = "advanced")
+    Boolean getHttpTcpKeepAlive();
+
+    @Schema(
+        title = "Maximum time a connection of the HTTP client may stay idle in the pool.",
+        description = "Defaults to the one of the AWS SDK (60 seconds)."
+    )
+    @PluginProperty(group = "advanced")
+    java.time.Duration getHttpConnectionMaxIdleTime();
+
+    @Schema(
+        title = "Whether idle connections of the HTTP client are closed in the background.",
+        description = "When disabled, connections idle for longer than `httpConnectionMaxIdleTime` are only closed when next used."
+    )
+    @PluginProperty(group = "advanced")
+    Boolean getHttpIdleConnectionReaper();
+
+    @Schema(
+        title = "Target throughput, in gigabits per second, of the AWS CRT client.",
+        description = "The CRT client, used for uploads, large downloads, copies and batched deletes, opens as many connections " +
+                      "as needed to reach it. Defaults to the one of the AWS CRT client (10 Gbps)."
+    )
+    @PluginProperty(group = "advanced")
+    Double getAsyncTargetThroughputInGbps();
+
+    @Schema(
+        title = "Maximum number of concurrent requests of the AWS CRT client.",
+        description = "Overrides the number derived from the target throughput."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getAsyncMaxConcurrency();
+
+    @Schema(
+        title = "Initial size, in bytes, of the buffer of each download of the AWS CRT client.",
+        description = "A larger buffer speeds up downloads read slowly, at the expense of memory. " +
+                      "Defaults to the one of the AWS CRT client (80 MiB)."
+    )
+    @PluginProperty(group = "advanced")
+    Long getAsyncInitialReadBufferSize();
+
+    @Schema(
+        title = "Whether requests are rate limited per key prefix, adapting to the throttling of S3.",
+        description = "Requests of each prefix are limited to a rate which is halved when S3 answers 503 Slow Down, and then " +
+                      "slowly grows back, so that bursts on a prefix stay close to what S3 accepts instead of failing or " +
+                      "retrying in a loop. The synchronous client also switches to the adaptive retry mode. " +
+                      "Applies to the operations on keys and prefixes: metadata requests, listings, reads, including " +
+                      "each ranged request of parallel reads, single request uploads, copies, moves and deletes, batched or not. " +
+                      "Bucket operations are not limited. The transfers of the transfer manager, that is multipart uploads, " +
+                      "copies and the downloads made when parallel ranged reads are disabled, are only limited as a whole: " +
+                      "they wait for one request, or for one per part for uploads of known size, before starting, " +
+                      "but their parts are neither paced nor reported when throttled, only the failure of the whole transfer is."
+    )
+    @PluginProperty(group = "advanced")
+    boolean isAdaptiveThrottling();
+
+    @Schema(
+        title = "Maximum number of requests per second per key prefix when adaptive throttling is enabled.",
+        description = "S3 supports at least 3,500 write and 5,500 read requests per second per prefix. " +
+                      "A batched delete counts as one request per key."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getThrottlingMaxRate();
+
+    @Schema(
+        title = "Number of key segments forming the prefixes rate limited independently.",
+        description = "With the default of 3, keys are limited per configured path, tenant and first namespace segment. " +
+                      "With key shards, the shard id is a segment of its own after the configured path, as S3 scales " +
+                      "the sharded prefixes independently: keys are then limited per path, shard and tenant, unless the depth is raised."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getThrottlingPrefixDepth();
+
+    @Schema(
+        title = "Number of shards the keys are spread over, from 0 to 256.",
+        description = "When set, a two-character shard id derived from a hash of the key is added to each key after the " +
+                      "configured path, so that the files of a namespace are spread over several prefixes, which S3 scales " +
+                      "independently. The URIs seen by Kestra don't change, but listings and deletes by prefix send one request per shard. " +
+                      "The number of shards is recorded in a marker object under the path, and the storage refuses to start " +
+                      "when it doesn't match the one of existing objects, unless `migrateKeyShards` is enabled. " +
+                      "Can't be used in S3 Files compatible mode. Defaults to 0, which keeps the keys as is."
+    )
+    @PluginProperty(group = "advanced")
+    Integer getKeyShards();
+
+    @Schema(
+        title = "Whether to move the existing objects to the keys of the configured number of key shards on startup.",
+        description = "When the objects under the path were stored with another number of key shards, they are moved to their new " +
+                      "key before the storage starts, which can take a while on large buckets. Enable it on a single instance, " +
+                      "with nothing else using the storage meanwhile. An interrupted migration is resumed on the next startup."
+    )
+    @PluginProperty(group = "advanced")
+    boolean isMigrateKeyShards();
 }
@@ -0,0 +1,214 @@
+package io.kestra.storage.s3;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.kestra.core.storages.StorageObject;
+
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.ChecksumMode;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * A read-through cache of objects on the local disk, bounded by a number of bytes with least recently used eviction.
+ * <p>
+ * Each read sends a GetObject request conditioned on the ETag of the cached copy, if any: the cached file is read when the
+ * object has not been modified, otherwise the new content replaces it. A file small enough to be cached is fully downloaded
+ * before its first byte is returned, larger ones are streamed as is.
+ * <p>
+ * The index only lives in memory, so the files are kept in a subdirectory of their own, deleted when the cache is closed.
+ * Each downloaded version of an object gets a new file which is never modified, so that a cached file always matches
+ * the metadata of its entry. Compressed files are cached as stored and decompressed when read.
+ */
+final class S3DiskCache {
+    private static final Logger LOG = LoggerFactory.getLogger(S3DiskCache.class);
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final S3KeyLayout keyLayout;
+    private final Path directory;
+    private final long maxBytes;
+    private final ChecksumMode checksumMode;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    S3DiskCache(S3Client s3Client, String bucket, S3KeyLayout keyLayout, Path directory, long maxBytes, ChecksumMode checksumMode) throws IOException {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.keyLayout = keyLayout;
+        this.directory = directory.resolve("kestra-s3-cache-" + UUID.randomUUID());
+        this.maxBytes = maxBytes;
+        this.checksumMode = checksumMode;
+
+        Files.createDirectories(this.directory);
+    }
+
+    StorageObject get(String key) throws IOException {
+        Entry cached = entry(key);
+        GetObjectRequest.Builder request = GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(keyLayout.toPhysical(key))
+            .checksumMode(checksumMode);
+        if (cached != null) {
+            request.ifNoneMatch(cached.eTag());
+        }
+
+        ResponseInputStream<GetObjectResponse> result;
+        try {
+            result = s3Client.getObject(request.build());
+        } catch (NoSuchKeyException e) {
+            invalidate(key);
+            throw new FileNotFoundException();
+        } catch (S3Exception e) {
+            if (cached != null && e.statusCode() == 304) {
+                InputStream inputStream = open(key, cached);
+                if (inputStream == null) {
+                    // replaced or evicted since the request was sent
+                    return get(key);
+                }
+                return S3Compression.toStorageObject(cached.metadata(), inputStream);
+            }
+            throw e;
+        }
+
+        GetObjectResponse response = result.response();
+        Map<String, String> metadata = response.metadata();
+        if (response.contentLength() == 0) {
+            result.close();
+            invalidate(key);
+            return S3Compression.toStorageObject(metadata, InputStream.nullInputStream());
+        }
+        if (response.contentLength() > maxBytes) {
+            invalidate(key);
+            return S3Compression.toStorageObject(metadata, result);
+        }
+
+        Path file = Files.createTempFile(directory, "object-", ".tmp");
+        try (result) {
+            Files.copy(result, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        InputStream inputStream = store(key, new Entry(file, response.eTag(), response.contentLength(), metadata));
+        return S3Compression.toStorageObject(metadata, inputStream);
+    }
+
+    synchronized void invalidate(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.size();
+            delete(entry);
+        }
+    }
+
+    /**
+     * Removes the entry for the given prefix and every entry whose key starts with it.
+     */
+    synchronized void invalidatePrefix(String prefix) {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Entry> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                iterator.remove();
+                totalBytes -= entry.getValue().size();
+                delete(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Deletes the files of the cache and its directory.
+     */
+    synchronized void close() {
+        entries.clear();
+        totalBytes = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete the cache directory {}", directory, e);
+        }
+    }
+
+    private synchronized Entry entry(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Opens the file of the given entry if it is still the current one of the key, or returns null.
+     * It is opened under the lock so that it can't be deleted in between.
+     */
+    private synchronized InputStream open(String key, Entry entry) throws IOException {
+        if (entries.get(key) != entry) {
+            return null;
+        }
+        return Files.newInputStream(entry.file());
+    }
+
+    /**
+     * Indexes the entry, replacing the previous one of the key, and opens its file before it can be evicted.
+     */
+    private synchronized InputStream store(String key, Entry entry) throws IOException {
+        InputStream inputStream;
+        try {
+            inputStream = Files.newInputStream(entry.file());
+        } catch (IOException e) {
+            delete(entry);
+            throw e;
+        }
+
+        List<Entry> evicted = new ArrayList<>();
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.size();
+            evicted.add(previous);
+        }
+        totalBytes += entry.size();
+
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            if (!eldest.getKey().equals(key)) {
+                iterator.remove();
+                totalBytes -= eldest.getValue().size();
+                evicted.add(eldest.getValue());
+            }
+        }
+        evicted.forEach(this::delete);
+        return inputStream;
+    }
+
+    private void delete(Entry entry) {
+        try {
+            Files.deleteIfExists(entry.file());
+        } catch (IOException e) {
+            LOG.warn("Failed to delete cached file {}", entry.file(), e);
+        }
+    }
+
+    private record Entry(Path file, String eTag, long size, Map<String, String> metadata) {
+    }
+}
@@ -53,7 +53,9 @@ public class S3FileAttributes implements FileAttributes {
 
     @Override
     public long getSize() {
-        return head.contentLength();
+        // compressed files report the size of their content, as it is read
+        Long originalSize = MetadataUtils.originalSize(head.metadata());
+        return originalSize != null ? originalSize : head.contentLength();
     }
 
     @Override
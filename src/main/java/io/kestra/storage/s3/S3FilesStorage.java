@@ -5,6 +5,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
@@ -111,6 +113,33 @@ public class S3FilesStorage implements StorageInterface {
         return new StorageObject(readMetaSidecar(p), Files.newInputStream(p));
     }
 
+    /**
+     * Reads {@code length} bytes of a file starting at {@code offset}.
+     * Fewer bytes are returned if the file ends before, and none if it ends before the offset.
+     */
+    public InputStream get(String tenantId, @Nullable String namespace, URI uri, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must be positive, got " + offset + " and " + length);
+        }
+        return new FileRangeInputStream(openChannel(getPath(tenantId, uri)), offset, length);
+    }
+
+    /**
+     * Opens a read-only channel over a file. The channel must be closed.
+     */
+    public SeekableByteChannel newByteChannel(String tenantId, @Nullable String namespace, URI uri) throws IOException {
+        return openChannel(getPath(tenantId, uri));
+    }
+
+    private FileChannel openChannel(String path) throws IOException {
+        Path p = resolveLocalPath(path);
+        guardTraversal(p);
+        if (!Files.isRegularFile(p)) {
+            throw new FileNotFoundException();
+        }
+        return FileChannel.open(p, StandardOpenOption.READ);
+    }
+
     private StorageObject getWithMetadata(String path) throws IOException {
         Path p = resolveLocalPath(path);
         guardTraversal(p);
@@ -0,0 +1,84 @@
+package io.kestra.storage.s3;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * Helpers to wait for the futures of the async client and to map their failures to the exceptions of the storage.
+ */
+final class S3Futures {
+    private S3Futures() {
+    }
+
+    /**
+     * Waits for the given future, rethrowing the SDK exceptions as is so they can be handled like the synchronous client ones.
+     */
+    static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the given future, rethrowing its failure as is, checked exceptions other than IO ones being wrapped
+     * in an {@link IOException}.
+     */
+    static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Maps the failures of the SDK to the exceptions of the storage interface:
+     * a missing key to a {@link FileNotFoundException}, other SDK errors, including a missing bucket, to an {@link IOException}.
+     */
+    static <T> CompletableFuture<T> withIOExceptions(CompletableFuture<T> future) {
+        return future.exceptionallyCompose(throwable -> {
+            Throwable cause = unwrap(throwable);
+            if (cause instanceof NoSuchKeyException) {
+                return CompletableFuture.failedFuture(new FileNotFoundException());
+            }
+            if (cause instanceof AwsServiceException || cause instanceof SdkClientException) {
+                return CompletableFuture.failedFuture(new IOException(cause));
+            }
+            return CompletableFuture.failedFuture(cause);
+        });
+    }
+
+    /**
+     * Returns the failure wrapped by the completion and execution exceptions of the futures.
+     */
+    static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,127 @@
+package io.kestra.storage.s3;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.annotation.Nullable;
+
+/**
+ * A bounded, thread-safe cache keyed by S3 object keys.
+ * When the maximum size is reached, the least recently used entry is evicted.
+ * Entries can also expire after a time to live, in which case they are considered missing.
+ * <p>
+ * A value loaded concurrently with writes is only cached through {@link #startLoad(String)} and
+ * {@link #putLoaded(String, Object, Object)}, so that a load which started before an invalidation of its key
+ * doesn't cache what may be a stale value.
+ */
+final class S3KeyCache<V> {
+    private final Map<String, Entry<V>> entries;
+    private final Map<String, Object> loads = new HashMap<>();
+    private final long ttlNanos;
+
+    private long hits;
+    private long misses;
+
+    S3KeyCache(int maxSize) {
+        this(maxSize, null);
+    }
+
+    S3KeyCache(int maxSize, @Nullable Duration ttl) {
+        this.ttlNanos = ttl == null ? 0 : ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    synchronized V get(String key) {
+        Entry<V> entry = liveEntry(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value();
+    }
+
+    /**
+     * Returns the value for the given key like {@link #get(String)}, without counting a hit or a miss.
+     */
+    @Nullable
+    synchronized V peek(String key) {
+        Entry<V> entry = liveEntry(key);
+        return entry == null ? null : entry.value();
+    }
+
+    synchronized void put(String key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    /**
+     * Records that the value of the key is being loaded.
+     *
+     * @return the token to give to {@link #putLoaded(String, Object, Object)} or {@link #endLoad(String, Object)} once loaded
+     */
+    synchronized Object startLoad(String key) {
+        Object token = new Object();
+        loads.put(key, token);
+        return token;
+    }
+
+    /**
+     * Caches the loaded value, unless the key has been invalidated, or loaded again, since the load started.
+     *
+     * @return whether the value was cached
+     */
+    synchronized boolean putLoaded(String key, Object token, V value) {
+        if (!loads.remove(key, token)) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    /**
+     * Ends a load whose value is not cached, like a failed one.
+     */
+    synchronized void endLoad(String key, Object token) {
+        loads.remove(key, token);
+    }
+
+    synchronized void invalidate(String key) {
+        entries.remove(key);
+        loads.remove(key);
+    }
+
+    /**
+     * Removes the entry for the given prefix and every entry whose key starts with it.
+     */
+    synchronized void invalidatePrefix(String prefix) {
+        entries.keySet().removeIf(key -> key.startsWith(prefix));
+        loads.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    synchronized long hitCount() {
+        return hits;
+    }
+
+    synchronized long missCount() {
+        return misses;
+    }
+
+    private Entry<V> liveEntry(String key) {
+        Entry<V> entry = entries.get(key);
+        if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.createdAt() > ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry;
+    }
+
+    private record Entry<V>(V value, long createdAt) {
+    }
+}
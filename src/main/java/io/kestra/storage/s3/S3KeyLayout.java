@@ -0,0 +1,107 @@
+package io.kestra.storage.s3;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Maps the logical keys of the storage to the keys of the objects in the bucket.
+ * <p>
+ * Without shards, both are the same. With shards, a short shard id derived from a hash of the key is inserted after the
+ * configured root path, so that the keys of a same namespace are spread over several key prefixes, which S3 partitions
+ * and scales independently. As the objects under a logical prefix are spread over all the shards, listing a prefix means
+ * listing it in every shard.
+ */
+final class S3KeyLayout {
+    private static final HexFormat HEX = HexFormat.of();
+    // two hexadecimal digits and a slash
+    private static final int SHARD_LENGTH = 3;
+
+    private final String root;
+    private final int shards;
+
+    /**
+     * @param root the prefix of all the keys, before which no shard is inserted
+     * @param shards the number of shards, 0 to keep the logical keys
+     */
+    S3KeyLayout(String root, int shards) {
+        if (shards < 0 || shards > 256) {
+            throw new IllegalArgumentException("The number of key shards must be between 0 and 256, got " + shards);
+        }
+        this.root = root;
+        this.shards = shards;
+    }
+
+    boolean isSharded() {
+        return shards > 0;
+    }
+
+    String toPhysical(String key) {
+        if (!isSharded()) {
+            return key;
+        }
+        String rootPath = rootOf(key);
+        String relativeKey = key.substring(rootPath.length());
+        return rootPath + shard(relativeKey) + "/" + relativeKey;
+    }
+
+    String toLogical(String physicalKey) {
+        if (!isSharded()) {
+            return physicalKey;
+        }
+        String rootPath = rootOf(physicalKey);
+        return rootPath + physicalKey.substring(rootPath.length() + SHARD_LENGTH);
+    }
+
+    /**
+     * Returns whether the given object key follows this layout, that is whether it is in the shard of its logical key.
+     */
+    boolean isPhysical(String physicalKey) {
+        if (!isSharded()) {
+            return true;
+        }
+        String rootPath = rootOf(physicalKey);
+        if (physicalKey.length() < rootPath.length() + SHARD_LENGTH || physicalKey.charAt(rootPath.length() + SHARD_LENGTH - 1) != '/') {
+            return false;
+        }
+        String relativeKey = physicalKey.substring(rootPath.length() + SHARD_LENGTH);
+        return physicalKey.startsWith(shard(relativeKey), rootPath.length());
+    }
+
+    /**
+     * Returns the prefixes to list to find all the objects whose logical key starts with the given prefix, one per shard.
+     */
+    List<String> toPhysicalPrefixes(String prefix) {
+        if (!isSharded()) {
+            return List.of(prefix);
+        }
+        String rootPath = rootOf(prefix);
+        String relativePrefix = prefix.substring(rootPath.length());
+        return IntStream.range(0, shards)
+            .mapToObj(shard -> rootPath + HEX.toHexDigits((byte) shard) + "/" + relativePrefix)
+            .toList();
+    }
+
+    String root() {
+        return root;
+    }
+
+    int shards() {
+        return shards;
+    }
+
+    private String shard(String relativeKey) {
+        CRC32 crc = new CRC32();
+        crc.update(relativeKey.getBytes(StandardCharsets.UTF_8));
+        return HEX.toHexDigits((byte) (crc.getValue() % shards));
+    }
+
+    /**
+     * Keys outside the root path, like the ones of instance resources when they don't use it, are sharded from their start.
+     */
+    private String rootOf(String key) {
+        return key.startsWith(root) ? root : "";
+    }
+}
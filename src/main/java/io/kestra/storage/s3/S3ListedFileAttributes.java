@@ -0,0 +1,95 @@
+package io.kestra.storage.s3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Map;
+
+import io.kestra.core.storages.FileAttributes;
+import io.kestra.core.utils.Rethrow;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * {@link FileAttributes} built from a ListObjectsV2 entry, so listing a directory doesn't need one HEAD request per file.
+ * The user metadata, and the last modified date of directories only known from a common prefix, are not part
+ * of the listings: they are loaded on first access through the given loader.
+ * So is the size of the files which may be compressed, as listings only have their stored size.
+ */
+public class S3ListedFileAttributes implements FileAttributes {
+    @Getter
+    private final String fileName;
+    private final long size;
+    private final Instant lastModified;
+    private final boolean isDirectory;
+    private final boolean sizeLoaded;
+    private final Rethrow.SupplierChecked<FileAttributes, IOException> attributesLoader;
+
+    private FileAttributes loadedAttributes;
+    private boolean loaded;
+
+    @Builder
+    public S3ListedFileAttributes(String fileName, long size, Instant lastModified, boolean isDirectory, boolean sizeLoaded, Rethrow.SupplierChecked<FileAttributes, IOException> attributesLoader) {
+        this.fileName = fileName;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.isDirectory = isDirectory;
+        this.sizeLoaded = sizeLoaded;
+        this.attributesLoader = attributesLoader;
+    }
+
+    @Override
+    public long getLastModifiedTime() {
+        if (lastModified != null) {
+            return lastModified.toEpochMilli();
+        }
+        try {
+            FileAttributes attributes = loadAttributes();
+            return attributes == null ? 0L : attributes.getLastModifiedTime();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Amazon S3 maintains only the last modified date for each object, see {@link S3FileAttributes#getCreationTime()}.
+     */
+    @Override
+    public long getCreationTime() {
+        return getLastModifiedTime();
+    }
+
+    @Override
+    public FileType getType() {
+        return isDirectory ? FileType.Directory : FileType.File;
+    }
+
+    @Override
+    public long getSize() {
+        if (!sizeLoaded) {
+            return size;
+        }
+        try {
+            FileAttributes attributes = loadAttributes();
+            return attributes == null ? size : attributes.getSize();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Map<String, String> getMetadata() throws IOException {
+        FileAttributes attributes = loadAttributes();
+        return attributes == null ? Map.of() : attributes.getMetadata();
+    }
+
+    private synchronized FileAttributes loadAttributes() throws IOException {
+        if (!loaded) {
+            // the object may have been deleted since it was listed, in which case there is nothing to load
+            loadedAttributes = attributesLoader.get();
+            loaded = true;
+        }
+        return loadedAttributes;
+    }
+}
@@ -0,0 +1,52 @@
+package io.kestra.storage.s3;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+
+/**
+ * Lazily iterates over the pages of a ListObjectsV2 listing.
+ * The next page is requested as soon as the current one is returned, so it is fetched while the current one is consumed,
+ * and at most two pages are held in memory.
+ */
+final class S3ListingPages implements Iterator<ListObjectsV2Response>, AutoCloseable {
+    private final S3AsyncClient s3AsyncClient;
+    private final ListObjectsV2Request request;
+    private CompletableFuture<ListObjectsV2Response> nextPage;
+
+    S3ListingPages(S3AsyncClient s3AsyncClient, ListObjectsV2Request request) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.request = request;
+        this.nextPage = s3AsyncClient.listObjectsV2(request);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextPage != null;
+    }
+
+    @Override
+    public ListObjectsV2Response next() {
+        if (nextPage == null) {
+            throw new NoSuchElementException();
+        }
+
+        ListObjectsV2Response page = S3Futures.join(nextPage);
+        nextPage = page.isTruncated()
+            ? s3AsyncClient.listObjectsV2(request.toBuilder().continuationToken(page.nextContinuationToken()).build())
+            : null;
+        return page;
+    }
+
+    @Override
+    public void close() {
+        if (nextPage != null) {
+            nextPage.cancel(true);
+            nextPage = null;
+        }
+    }
+}
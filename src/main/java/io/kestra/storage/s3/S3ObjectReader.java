@@ -0,0 +1,14 @@
+package io.kestra.storage.s3;
+
+import java.io.IOException;
+
+import io.kestra.core.storages.StorageObject;
+
+/**
+ * Reads a file got by {@link S3Storage#getAll(String, String, java.util.Collection, S3ObjectReader)}.
+ * The input stream of the file is closed once the reader returns.
+ */
+@FunctionalInterface
+public interface S3ObjectReader<T> {
+    T read(StorageObject storageObject) throws IOException;
+}
@@ -0,0 +1,143 @@
+package io.kestra.storage.s3;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CommonPrefix;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
+import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
+import software.amazon.awssdk.services.s3.model.S3Object;
+
+/**
+ * Recursively lists a prefix by splitting it on its sub-prefixes and listing them concurrently.
+ * <p>
+ * Each prefix is listed with a '/' delimiter: its objects are returned and its common prefixes are listed in turn.
+ * When directories are requested, the common prefixes are also returned as directory objects (a key ending with a slash
+ * and no last modified date), whether they have a marker or not. Otherwise, only the objects stored in the bucket,
+ * markers included, are returned.
+ * Requests are only sent while the iterator is consumed, with at most {@code concurrency} of them in flight,
+ * so the number of pages held in memory is bounded. Objects are not returned in lexicographical order.
+ */
+final class S3ParallelLister implements Iterator<S3Object>, AutoCloseable {
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucket;
+    private final String prefix;
+    private final int concurrency;
+    private final boolean directories;
+
+    private final Deque<ListObjectsV2Request> pendingRequests = new ArrayDeque<>();
+    private final BlockingQueue<Page> completedPages = new LinkedBlockingQueue<>();
+    private final Set<CompletableFuture<ListObjectsV2Response>> inFlightRequests = ConcurrentHashMap.newKeySet();
+    private final Deque<S3Object> buffer = new ArrayDeque<>();
+
+    /**
+     * @param directories whether the common prefixes are returned as directory objects, in place of their marker if any
+     */
+    S3ParallelLister(S3AsyncClient s3AsyncClient, String bucket, String prefix, int concurrency, boolean directories) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucket = bucket;
+        this.prefix = prefix;
+        this.concurrency = concurrency;
+        this.directories = directories;
+        this.pendingRequests.add(request(prefix));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (buffer.isEmpty()) {
+            sendPendingRequests();
+            if (inFlightRequests.isEmpty() && completedPages.isEmpty()) {
+                return false;
+            }
+            handle(takeCompletedPage());
+        }
+        return true;
+    }
+
+    @Override
+    public S3Object next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.poll();
+    }
+
+    @Override
+    public void close() {
+        pendingRequests.clear();
+        inFlightRequests.forEach(future -> future.cancel(true));
+        inFlightRequests.clear();
+    }
+
+    private ListObjectsV2Request request(String listedPrefix) {
+        return ListObjectsV2Request.builder()
+            .bucket(bucket)
+            .prefix(listedPrefix)
+            .delimiter("/")
+            .build();
+    }
+
+    private void sendPendingRequests() {
+        while (inFlightRequests.size() < concurrency && !pendingRequests.isEmpty()) {
+            ListObjectsV2Request request = pendingRequests.poll();
+            CompletableFuture<ListObjectsV2Response> future = s3AsyncClient.listObjectsV2(request);
+            inFlightRequests.add(future);
+            future.whenComplete((response, throwable) -> {
+                completedPages.add(new Page(request, response, throwable));
+                inFlightRequests.remove(future);
+            });
+        }
+    }
+
+    private Page takeCompletedPage() {
+        try {
+            return completedPages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new CompletionException(e);
+        }
+    }
+
+    private void handle(Page page) {
+        if (page.throwable() != null) {
+            close();
+            Throwable cause = page.throwable() instanceof CompletionException ? page.throwable().getCause() : page.throwable();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new CompletionException(cause);
+        }
+
+        ListObjectsV2Response response = page.response();
+        if (response.isTruncated()) {
+            pendingRequests.add(page.request().toBuilder().continuationToken(response.nextContinuationToken()).build());
+        }
+
+        String pagePrefix = page.request().prefix();
+        for (S3Object object : response.contents()) {
+            // the marker of a sub-prefix is listed with it, but it has already been returned as a common prefix
+            if (!directories || pagePrefix.equals(prefix) || !object.key().equals(pagePrefix)) {
+                buffer.add(object);
+            }
+        }
+        for (CommonPrefix commonPrefix : response.commonPrefixes()) {
+            if (directories) {
+                buffer.add(S3Object.builder().key(commonPrefix.prefix()).size(0L).build());
+            }
+            pendingRequests.add(request(commonPrefix.prefix()));
+        }
+    }
+
+    private record Page(ListObjectsV2Request request, ListObjectsV2Response response, Throwable throwable) {
+    }
+}
@@ -0,0 +1,133 @@
+package io.kestra.storage.s3;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+
+/**
+ * Reads an object with byte-range GetObject requests sent in parallel on the async client.
+ * <p>
+ * While the caller reads a part, the next {@code prefetch} parts are being downloaded, so at most {@code prefetch + 1} parts
+ * are held in memory. The parts are returned in order. Every request is conditioned on the ETag of the object,
+ * so a concurrent overwrite fails the read instead of mixing the bytes of two versions.
+ */
+final class S3RangedInputStream extends InputStream {
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+    private final S3AsyncClient s3AsyncClient;
+    private final String bucket;
+    private final String key;
+    private final String eTag;
+    private final long size;
+    private final int partSize;
+    private final int prefetch;
+
+    private final Deque<CompletableFuture<ResponseBytes<GetObjectResponse>>> parts = new ArrayDeque<>();
+    private long nextPartOffset;
+    private ByteBuffer current = EMPTY;
+    private boolean closed;
+
+    /**
+     * @param offset the position of the first byte to read, the ones before are skipped
+     * @param size the size of the whole object
+     */
+    S3RangedInputStream(S3AsyncClient s3AsyncClient, String bucket, String key, String eTag, long offset, long size, int partSize, int prefetch) {
+        this.s3AsyncClient = s3AsyncClient;
+        this.bucket = bucket;
+        this.key = key;
+        this.eTag = eTag;
+        this.size = size;
+        this.partSize = partSize;
+        this.prefetch = prefetch;
+        this.nextPartOffset = offset;
+        requestParts();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextPart()) {
+            return -1;
+        }
+        return current.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextPart()) {
+            return -1;
+        }
+
+        int read = Math.min(len, current.remaining());
+        current.get(b, off, read);
+        return read;
+    }
+
+    @Override
+    public int available() {
+        return current.remaining();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        parts.forEach(part -> part.cancel(true));
+        parts.clear();
+        current = EMPTY;
+    }
+
+    /**
+     * Moves to the next downloaded part if the current one has been fully read.
+     *
+     * @return false once the whole object has been read
+     */
+    private boolean nextPart() throws IOException {
+        while (!current.hasRemaining()) {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+
+            CompletableFuture<ResponseBytes<GetObjectResponse>> part = parts.poll();
+            if (part == null) {
+                return false;
+            }
+            requestParts();
+
+            try {
+                current = part.join().asByteBuffer();
+            } catch (CompletionException e) {
+                close();
+                throw new IOException("Failed to read " + key, e.getCause());
+            }
+        }
+        return true;
+    }
+
+    private void requestParts() {
+        while (parts.size() < prefetch && nextPartOffset < size) {
+            long end = Math.min(nextPartOffset + partSize, size) - 1;
+            GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .range("bytes=" + nextPartOffset + "-" + end)
+                .ifMatch(eTag)
+                .build();
+            parts.add(s3AsyncClient.getObject(request, AsyncResponseTransformer.toBytes()));
+            nextPartOffset = end + 1;
+        }
+    }
+}
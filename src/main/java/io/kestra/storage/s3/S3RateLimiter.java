@@ -0,0 +1,129 @@
+package io.kestra.storage.s3;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A client-side rate limiter with a token bucket per key prefix, whose rate adapts to the throttling responses of S3.
+ * <p>
+ * S3 scales its request rate limits per key prefix. Each prefix starts at the maximum rate. When S3 answers 503 Slow Down,
+ * the rate of the prefix is halved, at most once per second so that the responses to the requests already sent
+ * don't halve it several times. The rate then grows back linearly, by a tenth of the maximum rate per second,
+ * so the load settles under the point where S3 throttles instead of oscillating around it.
+ */
+final class S3RateLimiter {
+    private static final int MAX_PREFIXES = 10_000;
+    private static final long COOL_DOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final double MIN_RATE = 1;
+    private static final double RECOVERY_PER_SECOND = 0.1;
+
+    private final double maxRate;
+    private final int prefixDepth;
+    private final Map<String, Bucket> buckets = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+            return size() > MAX_PREFIXES;
+        }
+    };
+
+    private long throttledCount;
+
+    /**
+     * @param maxRate the maximum number of requests per second per prefix
+     * @param prefixDepth the number of segments of the keys forming their prefix
+     */
+    S3RateLimiter(double maxRate, int prefixDepth) {
+        this.maxRate = maxRate;
+        this.prefixDepth = prefixDepth;
+    }
+
+    /**
+     * Waits until the given number of requests can be sent for the key.
+     */
+    void acquire(String key, int permits) throws InterruptedException {
+        long waitNanos = reserve(key, permits);
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Reserves the given number of requests for the key.
+     *
+     * @return how long to wait, in nanoseconds, before sending them
+     */
+    synchronized long reserve(String key, int permits) {
+        long now = System.nanoTime();
+        return buckets.computeIfAbsent(prefix(key), prefix -> new Bucket(maxRate, now)).reserve(permits, now);
+    }
+
+    /**
+     * Records that S3 throttled a request for the key.
+     */
+    synchronized void onThrottled(String key) {
+        long now = System.nanoTime();
+        throttledCount++;
+        buckets.computeIfAbsent(prefix(key), prefix -> new Bucket(maxRate, now)).throttle(now);
+    }
+
+    synchronized double rate(String key) {
+        Bucket bucket = buckets.get(prefix(key));
+        return bucket == null ? maxRate : bucket.rate;
+    }
+
+    synchronized long throttledCount() {
+        return throttledCount;
+    }
+
+    String prefix(String key) {
+        int end = -1;
+        for (int depth = 0; depth < prefixDepth; depth++) {
+            int slash = key.indexOf('/', end + 1);
+            if (slash < 0) {
+                return key;
+            }
+            end = slash;
+        }
+        return key.substring(0, end + 1);
+    }
+
+    private final class Bucket {
+        private double rate;
+        // may be negative, when requests have been reserved ahead
+        private double tokens;
+        private long updatedAt;
+        private long throttledAt;
+
+        Bucket(double rate, long now) {
+            this.rate = rate;
+            this.tokens = rate;
+            this.updatedAt = now;
+            this.throttledAt = now - COOL_DOWN_NANOS;
+        }
+
+        long reserve(int permits, long now) {
+            refill(now);
+            tokens -= permits;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+        }
+
+        void throttle(long now) {
+            if (now - throttledAt < COOL_DOWN_NANOS) {
+                return;
+            }
+            refill(now);
+            rate = Math.max(MIN_RATE, rate / 2);
+            // no burst until the rate has recovered
+            tokens = Math.min(tokens, 0);
+            throttledAt = now;
+        }
+
+        private void refill(long now) {
+            double elapsedSeconds = (now - updatedAt) / (double) TimeUnit.SECONDS.toNanos(1);
+            rate = Math.min(maxRate, rate + maxRate * RECOVERY_PER_SECOND * elapsedSeconds);
+            tokens = Math.min(rate, tokens + rate * elapsedSeconds);
+            updatedAt = now;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package io.kestra.storage.s3;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+
+/**
+ * A read-only {@link SeekableByteChannel} over an S3 object.
+ * <p>
+ * The object is read by fixed-size blocks with byte-range GetObject requests, only when a read reaches them.
+ * The last few blocks read are kept, so small reads close to each other don't send a request each.
+ * Every request is conditioned on the ETag of the object, so a concurrent overwrite fails the read instead of mixing
+ * the bytes of two versions.
+ */
+final class S3SeekableByteChannel implements SeekableByteChannel {
+    private static final int BLOCK_SIZE = 1024 * 1024;
+    private static final int MAX_CACHED_BLOCKS = 4;
+
+    private final S3Client s3Client;
+    private final String bucket;
+    private final String key;
+    private final String eTag;
+    private final long size;
+    private final Map<Long, byte[]> blocks = new LinkedHashMap<>(MAX_CACHED_BLOCKS + 1, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+            return size() > MAX_CACHED_BLOCKS;
+        }
+    };
+
+    private long position;
+    private boolean open = true;
+
+    S3SeekableByteChannel(S3Client s3Client, String bucket, String key, String eTag, long size) {
+        this.s3Client = s3Client;
+        this.bucket = bucket;
+        this.key = key;
+        this.eTag = eTag;
+        this.size = size;
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (position >= size) {
+            return -1;
+        }
+
+        int read = 0;
+        while (dst.hasRemaining() && position < size) {
+            byte[] block = block(position / BLOCK_SIZE);
+            int offsetInBlock = (int) (position % BLOCK_SIZE);
+            int length = Math.min(dst.remaining(), block.length - offsetInBlock);
+            dst.put(block, offsetInBlock, length);
+            position += length;
+            read += length;
+        }
+        return read;
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position: " + newPosition);
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return size;
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public synchronized void close() {
+        open = false;
+        blocks.clear();
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    private byte[] block(long index) throws IOException {
+        byte[] block = blocks.get(index);
+        if (block != null) {
+            return block;
+        }
+
+        long start = index * BLOCK_SIZE;
+        long end = Math.min(start + BLOCK_SIZE, size) - 1;
+        GetObjectRequest request = GetObjectRequest.builder()
+            .bucket(bucket)
+            .key(key)
+            .range("bytes=" + start + "-" + end)
+            .ifMatch(eTag)
+            .build();
+        try {
+            block = s3Client.getObjectAsBytes(request).asByteArrayUnsafe();
+        } catch (SdkException e) {
+            throw new IOException("Failed to read " + key, e);
+        }
+        blocks.put(index, block);
+        return block;
+    }
+}
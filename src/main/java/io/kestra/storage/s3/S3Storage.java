@@ -1,21 +1,45 @@
 package io.kestra.storage.s3;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.commons.lang3.Strings;
 import org.slf4j.Logger;
@@ -29,10 +53,14 @@ import io.kestra.core.storages.StorageInterface;
 import io.kestra.core.storages.StorageObject;
 
 import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
 import lombok.*;
 import lombok.extern.jackson.Jacksonized;
 import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
 import software.amazon.awssdk.awscore.exception.AwsServiceException;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
@@ -43,13 +71,12 @@ import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.transfer.s3.S3TransferManager;
-import software.amazon.awssdk.transfer.s3.model.Download;
+import software.amazon.awssdk.transfer.s3.model.CompletedCopy;
+import software.amazon.awssdk.transfer.s3.model.CopyRequest;
 import software.amazon.awssdk.transfer.s3.model.DownloadRequest;
 import software.amazon.awssdk.transfer.s3.model.Upload;
 import software.amazon.awssdk.transfer.s3.model.UploadRequest;
-import software.amazon.awssdk.utils.builder.SdkBuilder;
-
-import static io.kestra.core.utils.Rethrow.throwFunction;
+import software.amazon.awssdk.utils.SdkAutoCloseable;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -63,7 +90,10 @@ public class S3Storage implements S3Config, StorageInterface {
     private static final Logger LOG = LoggerFactory.getLogger(S3Storage.class);
     private static final Pattern METADATA_KEY_WORD_SEPARATOR = Pattern.compile("_([a-z])");
     private static final Pattern UPPERCASE = Pattern.compile("([A-Z])");
-    private static final int S3_MAX_DELETE_BATCH_SIZE = 1000;
+    private static final String DIRECTORY_CONTENT_TYPE = "application/x-directory";
+    // the part size of the CRT client when none is configured, and the maximum number of parts of S3
+    private static final long DEFAULT_MULTIPART_PART_SIZE = 8L * 1024 * 1024;
+    private static final int MAX_MULTIPART_PART_COUNT = 10_000;
 
     @NotEmpty
     private String bucket;
@@ -84,22 +114,224 @@ public class S3Storage implements S3Config, StorageInterface {
 
     private boolean s3FilesCompatible;
 
+    private boolean implicitDirectories;
+
     @Builder.Default
     private Duration stsRoleSessionDuration = AWS_MIN_STS_ROLE_SESSION_DURATION;
 
+    @Min(1)
+    @Builder.Default
+    private Integer uploadConcurrency = 32;
+
+    @Min(0)
+    @Builder.Default
+    private Integer directoryCacheSize = 10_000;
+
+    @Builder.Default
+    private Duration directoryCacheTtl = Duration.ofMinutes(1);
+
+    @Min(1)
+    @Builder.Default
+    private Integer listingConcurrency = 1;
+
+    @Min(1)
+    @Builder.Default
+    private Integer deleteConcurrency = 4;
+
+    @Min(1)
+    @Builder.Default
+    private Integer moveConcurrency = 16;
+
+    @Min(5 * 1024 * 1024)
+    private Long multipartPartSize;
+
+    @Min(0)
+    @Max(1024 * 1024 * 1024)
+    @Builder.Default
+    private Integer singlePartUploadThreshold = 8 * 1024 * 1024;
+
+    @Min(0)
+    @Builder.Default
+    private Integer singleRequestDownloadThreshold = 8 * 1024 * 1024;
+
+    @Min(1)
+    @Builder.Default
+    private Integer parallelDownloadPartSize = 8 * 1024 * 1024;
+
+    @Min(0)
+    @Builder.Default
+    private Integer parallelDownloadPrefetch = 4;
+
+    @Min(1)
+    @Builder.Default
+    private Integer bulkConcurrency = 32;
+
+    @Min(0)
+    @Builder.Default
+    private Integer attributeCacheSize = 0;
+
+    private String localCacheDirectory;
+
+    @Min(1)
+    @Builder.Default
+    private Long localCacheMaxBytes = 1024L * 1024 * 1024;
+
+    @Builder.Default
+    private Duration attributeCacheTtl = Duration.ofSeconds(5);
+
+    @Builder.Default
+    private CompressionCodec compression = CompressionCodec.NONE;
+
+    @Min(0)
+    @Builder.Default
+    private Integer compressionMinSize = 1024;
+
+    @Builder.Default
+    private List<String> compressedExtensions = List.of("ion", "json", "jsonl", "csv", "txt", "log", "xml", "yml", "yaml");
+
+    @Builder.Default
+    private ChecksumPolicy checksumPolicy = ChecksumPolicy.CRC32C;
+
+    private boolean validateRangedReads;
+
+    @Min(1)
+    @Builder.Default
+    private Integer httpMaxConnections = 128;
+
+    private Duration httpConnectionTimeout;
+
+    private Duration httpSocketTimeout;
+
+    private Duration httpConnectionAcquisitionTimeout;
+
+    private Boolean httpTcpKeepAlive;
+
+    private Duration httpConnectionMaxIdleTime;
+
+    @Builder.Default
+    private Boolean httpIdleConnectionReaper = true;
+
+    @Positive
+    private Double asyncTargetThroughputInGbps;
+
+    @Min(1)
+    private Integer asyncMaxConcurrency;
+
+    @Min(1)
+    private Long asyncInitialReadBufferSize;
+
+    private boolean adaptiveThrottling;
+
+    @Min(1)
+    @Builder.Default
+    private Integer throttlingMaxRate = 3500;
+
+    @Min(1)
+    @Builder.Default
+    private Integer throttlingPrefixDepth = 3;
+
+    @Min(0)
+    @Max(256)
+    @Builder.Default
+    private Integer keyShards = 0;
+
+    private boolean migrateKeyShards;
+
+    @Getter(AccessLevel.PRIVATE)
+    private AwsCredentialsProvider credentialsProvider;
+
+    @Getter(AccessLevel.PRIVATE)
+    private S3RateLimiter rateLimiter;
+
+    @Getter(AccessLevel.PRIVATE)
+    private S3KeyLayout keyLayout;
+
     @Getter(AccessLevel.PRIVATE)
     private S3Client s3Client;
 
     @Getter(AccessLevel.PRIVATE)
     private S3AsyncClient s3AsyncClient;
 
+    @Getter(AccessLevel.PRIVATE)
+    private S3TransferManager transferManager;
+
+    @Getter(AccessLevel.PRIVATE)
+    private ExecutorService uploadExecutor;
+
+    @Getter(AccessLevel.PRIVATE)
+    private Semaphore uploadPermits;
+
+    @Getter(AccessLevel.PRIVATE)
+    private ExecutorService asyncExecutor;
+
+    @Getter(AccessLevel.PRIVATE)
+    private S3KeyCache<Boolean> directoryCache;
+
+    @Getter(AccessLevel.PRIVATE)
+    private S3KeyCache<Optional<HeadObjectResponse>> attributeCache;
+
+    @Getter(AccessLevel.PRIVATE)
+    private S3DiskCache diskCache;
+
+    @Getter(AccessLevel.PRIVATE)
+    private S3StorageMarker storageMarker;
+
     /**
      * {@inheritDoc}
      **/
     @Override
     public void init() throws IOException {
-        this.s3Client = S3ClientFactory.getS3Client(this);
-        this.s3AsyncClient = S3ClientFactory.getAsyncS3Client(this);
+        if (keyShards > 0 && s3FilesCompatible) {
+            throw new IllegalArgumentException("Key shards can't be used in S3 Files compatible mode, which needs the keys to match the paths");
+        }
+        String root = path == null ? "" : path.isEmpty() || path.endsWith("/") ? path : path + "/";
+        this.keyLayout = new S3KeyLayout(root, keyShards);
+        // shared by both clients, so that an assumed role session is only refreshed once
+        this.credentialsProvider = S3ClientFactory.getCredentials(this);
+        if (adaptiveThrottling) {
+            this.rateLimiter = new S3RateLimiter(throttlingMaxRate, throttlingPrefixDepth);
+        }
+        this.s3Client = S3ClientFactory.getS3Client(this, credentialsProvider, rateLimiter);
+        S3AsyncClient crtClient = S3ClientFactory.getAsyncS3Client(this, credentialsProvider);
+        this.s3AsyncClient = rateLimiter == null ? crtClient : new S3ThrottlingAsyncClient(crtClient, rateLimiter);
+        // the transfer manager is thread-safe and meant to be shared, creating one per request is costly;
+        // it only parallelizes its transfers with the CRT client itself, so they are paced by their callers
+        this.transferManager = S3TransferManager.builder().s3Client(crtClient).build();
+        this.uploadExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("s3-storage-upload-", 0).factory());
+        this.uploadPermits = new Semaphore(uploadConcurrency);
+        this.asyncExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("s3-storage-async-", 0).factory());
+        if (directoryCacheSize > 0) {
+            if (directoryCacheTtl == null || !directoryCacheTtl.isPositive()) {
+                // the cached directories must expire, as other processes can delete their markers
+                throw new IllegalArgumentException("'directoryCacheTtl' must be a positive duration, got " + directoryCacheTtl);
+            }
+            this.directoryCache = new S3KeyCache<>(directoryCacheSize, directoryCacheTtl);
+        }
+        if (attributeCacheSize > 0) {
+            if (attributeCacheTtl == null || !attributeCacheTtl.isPositive()) {
+                // the cached attributes must expire, as other writers can change the objects
+                throw new IllegalArgumentException("'attributeCacheTtl' must be a positive duration, got " + attributeCacheTtl);
+            }
+            this.attributeCache = new S3KeyCache<>(attributeCacheSize, attributeCacheTtl);
+        }
+        if (localCacheDirectory != null) {
+            this.diskCache = new S3DiskCache(s3Client, this.getBucket(), keyLayout, Path.of(localCacheDirectory), localCacheMaxBytes, checksumMode());
+        }
+        this.storageMarker = S3StorageMarker.read(s3Client, this.getBucket(), keyLayout.root());
+        if (storageMarker.keyShards() != keyShards && !isRootEmpty()) {
+            if (!migrateKeyShards) {
+                throw new IllegalArgumentException("The objects under '" + root + "' are stored with " + storageMarker.keyShards() +
+                    " key shard(s), not " + keyShards + ": enable 'migrateKeyShards' to move them to the new keys");
+            }
+            long count = migrateKeyShards(new S3KeyLayout(root, storageMarker.keyShards()));
+            LOG.info("Moved {} object(s) from {} to {} key shard(s) under '{}'", count, storageMarker.keyShards(), keyShards, root);
+        }
+        // compression is recorded once for all, so that the sizes of compressed files are still listed right once it is disabled
+        S3StorageMarker marker = new S3StorageMarker(storageMarker.compressed() || compression != CompressionCodec.NONE, keyShards);
+        if (!marker.equals(storageMarker)) {
+            marker.write(s3Client, this.getBucket(), root);
+            this.storageMarker = marker;
+        }
         if (s3FilesCompatible) {
             enableBucketVersioning();
         }
@@ -125,17 +357,121 @@ public class S3Storage implements S3Config, StorageInterface {
         return exists(getPath(uri));
     }
 
+    /**
+     * Checks if a file or directory exists without blocking the caller.
+     */
+    public CompletableFuture<Boolean> existsAsync(String tenantId, @Nullable String namespace, URI uri) {
+        return existsAsync(getPath(tenantId, uri));
+    }
+
     private boolean exists(String path) {
-        try {
-            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                .bucket(this.getBucket())
-                .key(path)
-                .build();
-            s3Client.headObject(headObjectRequest);
-            return true;
-        } catch (NoSuchKeyException e) {
-            return false;
+        return S3Futures.join(existsAsync(path));
+    }
+
+    private CompletableFuture<Boolean> existsAsync(String path) {
+        return headObjectAsync(path)
+            .thenApply(response -> true)
+            .exceptionallyCompose(throwable -> {
+                if (!(S3Futures.unwrap(throwable) instanceof NoSuchKeyException)) {
+                    return CompletableFuture.failedFuture(S3Futures.unwrap(throwable));
+                }
+                if (implicitDirectories && path.endsWith("/")) {
+                    return findFirstObjectAsync(path).thenApply(Optional::isPresent);
+                }
+                return CompletableFuture.completedFuture(false);
+            });
+    }
+
+    /**
+     * Sends a HeadObject request for the given key, unless its result, or the fact that the key is missing,
+     * is still in the attribute cache.
+     *
+     * @throws NoSuchKeyException if the key doesn't exist
+     */
+    private HeadObjectResponse headObject(String path) {
+        return S3Futures.join(headObjectAsync(path));
+    }
+
+    /**
+     * Asynchronous variant of {@link #headObject(String)}, the future fails with a {@link NoSuchKeyException}
+     * if the key doesn't exist.
+     */
+    private CompletableFuture<HeadObjectResponse> headObjectAsync(String path) {
+        if (attributeCache != null) {
+            Optional<HeadObjectResponse> cached = attributeCache.get(path);
+            if (cached != null) {
+                return cached
+                    .map(CompletableFuture::completedFuture)
+                    .orElseGet(() -> CompletableFuture.failedFuture(NoSuchKeyException.builder().message(path + " (Not Found)").build()));
+            }
+        }
+
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+            .bucket(this.getBucket())
+            .key(s3Key(path))
+            .checksumMode(checksumMode())
+            .build();
+        if (attributeCache == null) {
+            return s3AsyncClient.headObject(headObjectRequest);
+        }
+        // not cached if the object is written, moved or deleted while the request is in flight, as it may be stale
+        Object load = attributeCache.startLoad(path);
+        return s3AsyncClient.headObject(headObjectRequest)
+            .whenComplete((response, throwable) -> {
+                if (response != null) {
+                    attributeCache.putLoaded(path, load, Optional.of(response));
+                } else if (S3Futures.unwrap(throwable) instanceof NoSuchKeyException) {
+                    attributeCache.putLoaded(path, load, Optional.empty());
+                } else {
+                    attributeCache.endLoad(path, load);
+                }
+            });
+    }
+
+    /**
+     * Sends a HeadObject request for the given key even if its result is in the attribute cache, which is then updated.
+     */
+    private CompletableFuture<HeadObjectResponse> freshHeadObjectAsync(String path) {
+        if (attributeCache != null) {
+            attributeCache.invalidate(path);
         }
+        return headObjectAsync(path);
+    }
+
+    /**
+     * Returns the number of metadata lookups served by the attribute cache, or 0 if it is disabled.
+     */
+    public long attributeCacheHitCount() {
+        return attributeCache == null ? 0 : attributeCache.hitCount();
+    }
+
+    /**
+     * Returns the number of metadata lookups that were not in the attribute cache and reached S3, or 0 if it is disabled.
+     */
+    public long attributeCacheMissCount() {
+        return attributeCache == null ? 0 : attributeCache.missCount();
+    }
+
+    /**
+     * Returns the first object stored under the given prefix, if any.
+     */
+    private CompletableFuture<Optional<S3Object>> findFirstObjectAsync(String prefix) {
+        List<CompletableFuture<Optional<S3Object>>> shards = keyLayout.toPhysicalPrefixes(prefix).stream()
+            .map(shardPrefix -> ListObjectsV2Request.builder()
+                .bucket(this.getBucket())
+                .prefix(shardPrefix)
+                .maxKeys(1)
+                .build()
+            )
+            .map(request -> s3AsyncClient.listObjectsV2(request).thenApply(response -> response.contents().stream().findFirst()))
+            .toList();
+        return CompletableFuture.allOf(shards.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> shards.stream()
+                .map(CompletableFuture::join)
+                .flatMap(Optional::stream)
+                .findFirst()
+                .map(this::toLogical)
+            );
     }
 
     @Override
@@ -158,6 +494,13 @@ public class S3Storage implements S3Config, StorageInterface {
         }
     }
 
+    /**
+     * Returns the number of requests throttled by S3 since the storage was initialized, when adaptive throttling is enabled.
+     */
+    public long throttledRequestCount() {
+        return rateLimiter == null ? 0 : rateLimiter.throttledCount();
+    }
+
     @VisibleForTesting
     S3Client getS3ClientForTest() {
         return s3Client;
@@ -169,56 +512,320 @@ public class S3Storage implements S3Config, StorageInterface {
         return getWithMetadata(path);
     }
 
-    private StorageObject getWithMetadata(String path) throws IOException {
-        try (S3TransferManager transferManager = S3TransferManager.builder().s3Client(s3AsyncClient).build()) {
-            GetObjectRequest request = GetObjectRequest.builder()
-                .bucket(this.getBucket())
-                .key(path)
-                .build();
+    /**
+     * Gets a file and its metadata without blocking the caller: the future completes once the response headers are received,
+     * the content being streamed while the returned input stream is read.
+     */
+    public CompletableFuture<StorageObject> getWithMetadataAsync(String tenantId, @Nullable String namespace, URI uri) {
+        return getWithMetadataAsync(getPath(tenantId, uri));
+    }
 
-            Download<ResponseInputStream<GetObjectResponse>> download = transferManager.download(
-                DownloadRequest.builder()
-                    .getObjectRequest(request)
-                    .responseTransformer(AsyncResponseTransformer.toBlockingInputStream())
-                    .build()
-            );
-            ResponseInputStream<GetObjectResponse> result = download.completionFuture().get().result();
-            InputStream resultInputStream = result;
+    /**
+     * Reads {@code length} bytes of a file starting at {@code offset} with a single byte-range request.
+     * Fewer bytes are returned if the file ends before, and none if it ends before the offset.
+     */
+    public InputStream get(String tenantId, @Nullable String namespace, URI uri, long offset, long length) throws IOException {
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException("Offset and length must be positive, got " + offset + " and " + length);
+        }
 
-            boolean isEmpty = result.response().contentLength() == 0;
-            if (isEmpty) {
-                result.close();
-                resultInputStream = InputStream.nullInputStream();
+        String path = getPath(tenantId, uri);
+        if (length == 0) {
+            if (!exists(path)) {
+                throw new FileNotFoundException();
             }
+            return InputStream.nullInputStream();
+        }
 
-            return new StorageObject(
-                MetadataUtils.toRetrievedMetadata(result.response().metadata()), resultInputStream
-            );
-        } catch (ExecutionException e) {
-            if (e.getCause() instanceof S3Exception s3Exception && s3Exception.statusCode() == 404) {
-                throw new FileNotFoundException();
+        GetObjectRequest request = GetObjectRequest.builder()
+            .bucket(this.getBucket())
+            .key(s3Key(path))
+            .range(range(offset, length))
+            .build();
+        try {
+            ResponseInputStream<GetObjectResponse> range = s3Client.getObject(request);
+            if (S3Compression.isCompressed(range.response().metadata())) {
+                // the response has the metadata of the object, whatever the current compression setting
+                range.abort();
+                checkNotCompressed(path, range.response().metadata());
+            }
+            return range;
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException();
+        } catch (S3Exception e) {
+            if (e.statusCode() != 416) {
+                throw new IOException(e);
             }
+        } catch (SdkClientException e) {
             throw new IOException(e);
-        } catch (InterruptedException e) {
+        }
+
+        // the offset is after the end of the stored file, which is shorter than the file when it is compressed
+        try {
+            checkNotCompressed(path, headObject(path).metadata());
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException();
+        } catch (AwsServiceException | SdkClientException e) {
             throw new IOException(e);
         }
+        return InputStream.nullInputStream();
+    }
+
+    /**
+     * Returns the byte range header of the given bytes, open-ended when the last byte is past the largest position,
+     * in which case S3 returns everything up to the end of the file.
+     */
+    private static String range(long offset, long length) {
+        if (length - 1 > Long.MAX_VALUE - offset) {
+            return "bytes=" + offset + "-";
+        }
+        return "bytes=" + offset + "-" + (offset + length - 1);
+    }
+
+    /**
+     * Opens a read-only channel over a file, which only downloads the parts of the file that are read.
+     * The channel must be closed.
+     */
+    public SeekableByteChannel newByteChannel(String tenantId, @Nullable String namespace, URI uri) throws IOException {
+        String path = getPath(tenantId, uri);
+        try {
+            // the parts are requested with the ETag of the object, which a cached response may no longer match
+            HeadObjectResponse head = S3Futures.join(freshHeadObjectAsync(path));
+            checkNotCompressed(path, head.metadata());
+            return new S3SeekableByteChannel(s3Client, this.getBucket(), s3Key(path), head.eTag(), head.contentLength());
+        } catch (NoSuchKeyException e) {
+            throw new FileNotFoundException();
+        } catch (AwsServiceException | SdkClientException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Returns the key of the object storing the file at the given path, which differs when the keys are sharded.
+     */
+    private String s3Key(String path) {
+        return keyLayout.toPhysical(path);
+    }
+
+    /**
+     * Returns the checksum mode of the GetObject requests of whole files, ranged responses have no checksum to validate.
+     */
+    @Nullable
+    private ChecksumMode checksumMode() {
+        return checksumPolicy.isEnabled() ? ChecksumMode.ENABLED : null;
+    }
+
+    private static void checkNotCompressed(String path, Map<String, String> storedMetadata) throws IOException {
+        if (S3Compression.isCompressed(storedMetadata)) {
+            throw new IOException("Range reads are not supported on the compressed file " + path);
+        }
+    }
+
+    private StorageObject getWithMetadata(String path) throws IOException {
+        return S3Futures.await(getWithMetadataAsync(path));
+    }
+
+    private CompletableFuture<StorageObject> getWithMetadataAsync(String path) {
+        if (diskCache != null) {
+            return S3Futures.withIOExceptions(callAsync(() -> diskCache.get(path)));
+        }
+
+        CompletableFuture<StorageObject> storageObject;
+        Long knownSize = singleRequestDownloadThreshold > 0 ? cachedSize(path) : null;
+        if (singleRequestDownloadThreshold > 0 && (knownSize == null || knownSize <= singleRequestDownloadThreshold)) {
+            storageObject = getSmallObjectAsync(path, knownSize != null)
+                .thenCompose(small -> small != null ? CompletableFuture.completedFuture(small) : getLargeObjectAsync(path));
+        } else {
+            storageObject = getLargeObjectAsync(path);
+        }
+        return S3Futures.withIOExceptions(storageObject);
+    }
+
+    /**
+     * Gets a large object with parallel ranged requests, or through the transfer manager when they are disabled
+     * by a prefetch of 0.
+     */
+    private CompletableFuture<StorageObject> getLargeObjectAsync(String path) {
+        if (parallelDownloadPrefetch > 0) {
+            return getRangedObjectAsync(path);
+        }
+
+        GetObjectRequest request = GetObjectRequest.builder()
+            .bucket(this.getBucket())
+            .key(s3Key(path))
+            .checksumMode(checksumMode())
+            .build();
+
+        DownloadRequest<ResponseInputStream<GetObjectResponse>> downloadRequest = DownloadRequest.builder()
+            .getObjectRequest(request)
+            .responseTransformer(AsyncResponseTransformer.toBlockingInputStream())
+            .build();
+        return paced(s3Key(path), 1, () -> transferManager.download(downloadRequest).completionFuture())
+            .thenApply(completed -> toStorageObject(completed.result()));
+    }
+
+    private static StorageObject toStorageObject(ResponseInputStream<GetObjectResponse> result) {
+        InputStream resultInputStream = result;
+
+        boolean isEmpty = result.response().contentLength() == 0;
+        if (isEmpty) {
+            try {
+                result.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            resultInputStream = InputStream.nullInputStream();
+        }
+
+        return S3Compression.toStorageObject(result.response().metadata(), resultInputStream);
+    }
+
+    /**
+     * Gets an object with a single GetObject request, streaming the response as is.
+     * When the size is unknown, only the first bytes up to the threshold are requested. If the object turns out to be larger,
+     * the rest is read with parallel ranged requests after these first bytes, or, when they are disabled,
+     * the response is discarded and null is returned so that it is downloaded through the transfer manager.
+     */
+    private CompletableFuture<StorageObject> getSmallObjectAsync(String path, boolean knownSize) {
+        GetObjectRequest.Builder request = GetObjectRequest.builder()
+            .bucket(this.getBucket())
+            .key(s3Key(path));
+        if (!knownSize) {
+            request.range("bytes=0-" + (singleRequestDownloadThreshold - 1));
+        } else {
+            request.checksumMode(checksumMode());
+        }
+
+        return s3AsyncClient.getObject(request.build(), AsyncResponseTransformer.toBlockingInputStream())
+            .thenApply(result -> {
+                GetObjectResponse response = result.response();
+                String contentRange = response.contentRange();
+                if (contentRange != null && !contentRange.endsWith("/" + response.contentLength())) {
+                    // this is only the first part of a larger object
+                    if (parallelDownloadPrefetch > 0) {
+                        long size = Long.parseLong(contentRange.substring(contentRange.lastIndexOf('/') + 1));
+                        InputStream inputStream = new SequenceInputStream(
+                            result, rangedInputStream(path, response.eTag(), response.contentLength(), size)
+                        );
+                        inputStream = validated(path, inputStream, expectedChecksumAsync(path, response));
+                        return S3Compression.toStorageObject(response.metadata(), inputStream);
+                    }
+                    result.abort();
+                    return null;
+                }
+                if (contentRange != null) {
+                    return S3Compression.toStorageObject(response.metadata(), validated(path, result, expectedChecksumAsync(path, response)));
+                }
+                return toStorageObject(result);
+            })
+            .exceptionallyCompose(throwable -> {
+                if (!knownSize && S3Futures.unwrap(throwable) instanceof S3Exception s3Exception && s3Exception.statusCode() == 416) {
+                    // the range of an empty object is not satisfiable
+                    return getSmallObjectAsync(path, true);
+                }
+                return CompletableFuture.failedFuture(S3Futures.unwrap(throwable));
+            });
+    }
+
+    private CompletableFuture<StorageObject> getRangedObjectAsync(String path) {
+        // the ranges are requested with the ETag of the object, which a cached response may no longer match
+        return freshHeadObjectAsync(path).thenApply(head -> {
+            InputStream inputStream = head.contentLength() == 0
+                ? InputStream.nullInputStream()
+                : validated(
+                    path,
+                    rangedInputStream(path, head.eTag(), 0, head.contentLength()),
+                    CompletableFuture.completedFuture(checksumPolicy.checksum(head))
+                );
+            return S3Compression.toStorageObject(head.metadata(), inputStream);
+        });
+    }
+
+    /**
+     * Validates the whole object read from the given stream against the checksum stored with it, when the checksum policy is
+     * enabled and that checksum is known.
+     */
+    private InputStream validated(String path, InputStream inputStream, @Nullable CompletableFuture<String> expectedChecksum) {
+        if (!checksumPolicy.isEnabled() || expectedChecksum == null) {
+            return inputStream;
+        }
+        return new S3ChecksumValidatingInputStream(inputStream, checksumPolicy, s3Key(path), expectedChecksum);
+    }
+
+    /**
+     * Returns the full-object checksum to validate an object read from the response to a range request, which has none:
+     * the one of its attributes when they are cached for the same version, otherwise, only when ranged reads are validated,
+     * the one of a HeadObject request. Returns null when it is not to be validated.
+     */
+    @Nullable
+    private CompletableFuture<String> expectedChecksumAsync(String path, GetObjectResponse response) {
+        if (!checksumPolicy.isEnabled()) {
+            return null;
+        }
+        String checksum = checksumPolicy.checksum(response);
+        if (checksum != null) {
+            return CompletableFuture.completedFuture(checksum);
+        }
+        Optional<HeadObjectResponse> cached = attributeCache == null ? null : attributeCache.peek(path);
+        if (cached != null && cached.isPresent() && Objects.equals(cached.get().eTag(), response.eTag())) {
+            return CompletableFuture.completedFuture(checksumPolicy.checksum(cached.get()));
+        }
+        if (!validateRangedReads) {
+            return null;
+        }
+
+        HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
+            .bucket(this.getBucket())
+            .key(s3Key(path))
+            .ifMatch(response.eTag())
+            .checksumMode(ChecksumMode.ENABLED)
+            .build();
+        return s3AsyncClient.headObject(headObjectRequest)
+            .thenApply(head -> checksumPolicy.checksum(head))
+            .exceptionally(throwable -> null);
+    }
+
+    private InputStream rangedInputStream(String path, String eTag, long offset, long size) {
+        return new S3RangedInputStream(
+            s3AsyncClient, this.getBucket(), s3Key(path), eTag, offset, size, parallelDownloadPartSize, parallelDownloadPrefetch
+        );
+    }
+
+    @Nullable
+    private Long cachedSize(String path) {
+        if (attributeCache == null) {
+            return null;
+        }
+        Optional<HeadObjectResponse> cached = attributeCache.peek(path);
+        return cached == null ? null : cached.map(HeadObjectResponse::contentLength).orElse(null);
     }
 
     @Override
     public List<URI> allByPrefix(String tenantId, @Nullable String namespace, URI prefix, boolean includeDirectories) {
+        try (Stream<URI> uris = streamByPrefix(tenantId, namespace, prefix, includeDirectories)) {
+            return uris.toList();
+        }
+    }
+
+    /**
+     * Lazily lists all the URIs under the given prefix, like {@link #allByPrefix(String, String, URI, boolean)}.
+     * Pages are fetched one at a time while the stream is consumed, so memory usage doesn't grow with the number of keys.
+     * The returned stream must be closed.
+     */
+    public Stream<URI> streamByPrefix(String tenantId, @Nullable String namespace, URI prefix, boolean includeDirectories) {
         String path = getPath(tenantId, prefix);
-        return keysForPrefix(path, true, includeDirectories)
-            .map(key -> URI.create("kestra://" + prefix.getPath() + key.substring(path.length())))
-            .toList();
+        return listObjects(path, true, includeDirectories)
+            .map(S3Object::key)
+            .map(key -> URI.create("kestra://" + prefix.getPath() + key.substring(path.length())));
     }
 
     @Override
     public List<FileAttributes> list(String tenantId, @Nullable String namespace, URI uri) throws IOException {
         String path = getPath(tenantId, uri);
         String prefix = path.endsWith("/") ? path : path + "/";
-        try {
-            List<FileAttributes> list = keysForPrefix(prefix, false, true)
-                .map(throwFunction(this::getFileAttributes))
+        try (Stream<S3Object> objects = listObjects(prefix, false, true)) {
+            List<FileAttributes> list = objects
+                .map(this::toFileAttributes)
                 .toList();
             if (list.isEmpty()) {
                 // this will throw FileNotFound if there is no directory
@@ -232,62 +839,210 @@ public class S3Storage implements S3Config, StorageInterface {
         }
     }
 
-    @Override
-    public List<FileAttributes> listInstanceResource(@Nullable String namespace, URI uri) throws IOException {
-        String path = getPath(uri);
-        String prefix = path.endsWith("/") ? path : path + "/";
-        //in case uri is null, we need to search in the root ("")
-        prefix = prefix.equals("/") ? "" : prefix;
-        try {
-            List<FileAttributes> list = keysForPrefix(prefix, false, true)
-                .map(throwFunction(this::getFileAttributes))
-                .toList();
-            if (list.isEmpty()) {
-                // this will throw FileNotFound if there is no directory
-                this.getInstanceAttributes(namespace, uri);
+    /**
+     * Lists the direct children of a directory without blocking the caller.
+     * The listing pages are requested on the async client and consumed on a virtual thread.
+     */
+    public CompletableFuture<List<FileAttributes>> listAsync(String tenantId, @Nullable String namespace, URI uri) {
+        return callAsync(() -> list(tenantId, namespace, uri));
+    }
+
+    @Override
+    public List<FileAttributes> listInstanceResource(@Nullable String namespace, URI uri) throws IOException {
+        String path = getPath(uri);
+        String prefix = path.endsWith("/") ? path : path + "/";
+        //in case uri is null, we need to search in the root ("")
+        prefix = prefix.equals("/") ? "" : prefix;
+        try (Stream<S3Object> objects = listObjects(prefix, false, true)) {
+            List<FileAttributes> list = objects
+                .map(this::toFileAttributes)
+                .toList();
+            if (list.isEmpty()) {
+                // this will throw FileNotFound if there is no directory
+                this.getInstanceAttributes(namespace, uri);
+            }
+            return list;
+        } catch (NoSuchKeyException exception) {
+            throw new FileNotFoundException();
+        } catch (AwsServiceException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Lists the objects under the given prefix. Directories which only exist as a key prefix are returned
+     * as objects whose key ends with a slash and which have no last modified date.
+     */
+    private Stream<S3Object> listObjects(String prefix, boolean recursive, boolean includeDirectories) {
+        return listShards(prefix, shardPrefix -> listShardObjects(shardPrefix, recursive, includeDirectories));
+    }
+
+    /**
+     * Lists every object stored under the given prefix, including the prefix itself, without any filtering.
+     * Unlike {@link #listObjects(String, boolean, boolean)}, directories without a marker are not returned,
+     * as there is no object to copy or delete for them.
+     */
+    private Stream<S3Object> listAllObjects(String prefix) {
+        return listShards(prefix, this::listAllShardObjects);
+    }
+
+    /**
+     * Lists a prefix in every shard of the key layout, returning the objects with their logical keys.
+     * The first pages of all the shards are requested together, the shards are then read one after the other.
+     * A directory is only returned once, even when it has keys in several shards.
+     */
+    private Stream<S3Object> listShards(String prefix, Function<String, Stream<S3Object>> lister) {
+        if (!keyLayout.isSharded()) {
+            // the marker is stored under the root path, outside the shards
+            String markerKey = keyLayout.root() + S3StorageMarker.NAME;
+            return lister.apply(prefix).filter(object -> !object.key().equals(markerKey));
+        }
+
+        List<Stream<S3Object>> shards = keyLayout.toPhysicalPrefixes(prefix).stream().map(lister).toList();
+        Set<String> directories = new HashSet<>();
+        return shards.stream()
+            .flatMap(Function.identity())
+            .map(this::toLogical)
+            .filter(object -> !object.key().endsWith("/") || directories.add(object.key()))
+            .onClose(() -> shards.forEach(Stream::close));
+    }
+
+    private S3Object toLogical(S3Object object) {
+        return keyLayout.isSharded() ? object.toBuilder().key(keyLayout.toLogical(object.key())).build() : object;
+    }
+
+    private Stream<S3Object> listShardObjects(String prefix, boolean recursive, boolean includeDirectories) {
+        if (recursive && listingConcurrency > 1) {
+            // the parallel listing returns the directories as common prefixes, with or without a marker
+            return listInParallel(prefix, true)
+                .filter(object -> isListed(prefix, object.key(), true, includeDirectories));
+        }
+
+        var requestBuilder = ListObjectsV2Request.builder()
+            .bucket(this.getBucket())
+            .prefix(prefix);
+
+        if (!recursive) {
+            // let S3 roll up nested keys into common prefixes instead of listing the whole tree
+            requestBuilder.delimiter("/");
+        }
+
+        S3ListingPages pages = new S3ListingPages(s3AsyncClient, requestBuilder.build());
+        AtomicReference<String> previousKey = new AtomicReference<>();
+        return stream(pages)
+            .onClose(pages::close)
+            .flatMap(page -> pageObjects(page, prefix, recursive, includeDirectories, previousKey).stream());
+    }
+
+    private Stream<S3Object> listAllShardObjects(String prefix) {
+        if (listingConcurrency > 1) {
+            return listInParallel(prefix, false);
+        }
+
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
+            .bucket(this.getBucket())
+            .prefix(prefix)
+            .build();
+        S3ListingPages pages = new S3ListingPages(s3AsyncClient, request);
+        return stream(pages)
+            .onClose(pages::close)
+            .flatMap(page -> page.contents().stream());
+    }
+
+    private Stream<S3Object> listInParallel(String prefix, boolean directories) {
+        S3ParallelLister lister = new S3ParallelLister(s3AsyncClient, this.getBucket(), prefix, listingConcurrency, directories);
+        return stream(lister).onClose(lister::close);
+    }
+
+    private static <T> Stream<T> stream(Iterator<T> iterator) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private List<S3Object> pageObjects(ListObjectsV2Response page, String prefix, boolean recursive, boolean includeDirectories, AtomicReference<String> previousKey) {
+        List<S3Object> objects = new ArrayList<>(page.contents().size() + page.commonPrefixes().size());
+        for (S3Object object : page.contents()) {
+            String key = object.key();
+            if (implicitDirectories && recursive && includeDirectories) {
+                addImplicitDirectories(prefix, key, previousKey.get(), objects);
+                previousKey.set(key);
+            }
+            if (isListed(prefix, key, recursive, includeDirectories)) {
+                objects.add(object);
             }
-            return list;
-        } catch (NoSuchKeyException exception) {
-            throw new FileNotFoundException();
-        } catch (AwsServiceException exception) {
-            throw new IOException(exception);
         }
-    }
 
-    private Stream<String> keysForPrefix(String prefix, boolean recursive, boolean includeDirectories) {
-        List<String> allKeys = new ArrayList<>();
-        String continuationToken = null;
+        if (includeDirectories) {
+            page.commonPrefixes().stream()
+                .map(CommonPrefix::prefix)
+                .filter(key -> isListed(prefix, key, recursive, true))
+                .map(S3Storage::directoryObject)
+                .forEach(objects::add);
+        }
+        return objects;
+    }
 
-        do {
-            var requestBuilder = ListObjectsV2Request.builder()
-                .bucket(this.getBucket())
-                .prefix(prefix);
+    private static S3Object directoryObject(String key) {
+        return S3Object.builder().key(key).size(0L).build();
+    }
 
-            if (continuationToken != null) {
-                requestBuilder.continuationToken(continuationToken);
-            }
+    private static boolean isListed(String prefix, String key, boolean recursive, boolean includeDirectories) {
+        String relativeKey = key.substring(prefix.length());
+        return !relativeKey.isEmpty()
+            && !Objects.equals(key, prefix)
+            && !relativeKey.equals("/")
+            && (recursive || isDirectChild(relativeKey))
+            && (includeDirectories || !relativeKey.endsWith("/"));
+    }
 
-            var response = s3Client.listObjectsV2(requestBuilder.build());
-            continuationToken = response.isTruncated() ? response.nextContinuationToken() : null;
+    private static boolean isDirectChild(String relativeKey) {
+        int slash = relativeKey.indexOf('/');
+        return slash < 0 || slash == relativeKey.length() - 1;
+    }
 
-            List<S3Object> contents = response.contents();
+    /**
+     * Adds the directories between the prefix and the given key, which have no marker in implicit directories mode.
+     * As listings are sorted lexicographically, all the keys under a directory are contiguous:
+     * a directory has already been added if it is also a parent of the previous key.
+     */
+    private static void addImplicitDirectories(String prefix, String key, @Nullable String previousKey, List<S3Object> objects) {
+        int index = key.indexOf('/', prefix.length());
+        while (index >= 0 && index < key.length() - 1) {
+            String directory = key.substring(0, index + 1);
+            if ((previousKey == null || !previousKey.startsWith(directory)) && isListed(prefix, directory, true, true)) {
+                objects.add(directoryObject(directory));
+            }
+            index = key.indexOf('/', index + 1);
+        }
+    }
 
-            contents.stream()
-                .map(S3Object::key)
-                .filter(key ->
-                {
-                    String relativeKey = key.substring(prefix.length());
-                    return !relativeKey.isEmpty()
-                        && !Objects.equals(key, prefix)
-                        && !relativeKey.equals("/")
-                        && (recursive || Path.of(relativeKey).getParent() == null)
-                        && (includeDirectories || !relativeKey.endsWith("/"));
-                })
-                .forEach(allKeys::add);
+    private FileAttributes toFileAttributes(S3Object object) {
+        String key = object.key();
+        return S3ListedFileAttributes.builder()
+            .fileName(fileName(key))
+            .size(object.size() == null ? 0L : object.size())
+            .lastModified(object.lastModified())
+            .isDirectory(key.endsWith("/"))
+            // listings only have the stored size, the size of a file which may be compressed is in its attributes
+            .sizeLoaded(!key.endsWith("/") && storageMarker.compressed())
+            .attributesLoader(() -> findAttributes(key))
+            .build();
+    }
 
-        } while (continuationToken != null);
+    private FileAttributes findAttributes(String path) throws IOException {
+        try {
+            return getAttributes(path);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
 
-        return allKeys.stream();
+    /**
+     * Returns the last segment of the key, ignoring the trailing slash of a directory.
+     */
+    private static String fileName(String key) {
+        int end = key.endsWith("/") ? key.length() - 1 : key.length();
+        int start = key.lastIndexOf('/', end - 1) + 1;
+        return end <= start ? "/" : key.substring(start, end);
     }
 
     @Override
@@ -301,39 +1056,57 @@ public class S3Storage implements S3Config, StorageInterface {
         return getAttributes(getPath(uri));
     }
 
+    /**
+     * Gets the attributes of a file or directory without blocking the caller.
+     */
+    public CompletableFuture<FileAttributes> getAttributesAsync(String tenantId, @Nullable String namespace, URI uri) {
+        return getAttributesAsync(getPath(tenantId, uri));
+    }
+
     private FileAttributes getAttributes(String path) throws IOException {
-        try {
-            return getFileAttributes(path);
-        } catch (FileNotFoundException e) {
-            if (path.endsWith("/")) {
-                throw e;
-            }
-            return getFileAttributes(path + "/");
-        }
+        return S3Futures.await(getAttributesAsync(path));
     }
 
-    private FileAttributes getFileAttributes(String path) throws IOException {
-        try {
-            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                .bucket(this.getBucket())
-                .key(path)
-                .build();
-            S3FileAttributes.S3FileAttributesBuilder builder = S3FileAttributes.builder()
-                .fileName(
-                    Optional.ofNullable(Path.of(path).getFileName()).map(Path::toString)
-                        .orElse("/")
-                )
-                .head(s3Client.headObject(headObjectRequest));
-            if (path.endsWith("/")) {
-                builder.isDirectory(true);
+    private CompletableFuture<FileAttributes> getAttributesAsync(String path) {
+        CompletableFuture<FileAttributes> attributes = headObjectAsync(path)
+            .<FileAttributes>thenApply(head -> S3FileAttributes.builder()
+                .fileName(fileName(path))
+                .head(head)
+                .isDirectory(path.endsWith("/"))
+                .build()
+            )
+            .exceptionallyCompose(throwable -> {
+                if (!(S3Futures.unwrap(throwable) instanceof NoSuchKeyException)) {
+                    return CompletableFuture.failedFuture(S3Futures.unwrap(throwable));
+                }
+                if (!path.endsWith("/")) {
+                    return getAttributesAsync(path + "/");
+                }
+                if (implicitDirectories) {
+                    return getImplicitDirectoryAttributesAsync(path);
+                }
+                return CompletableFuture.failedFuture(new FileNotFoundException());
+            });
+        return S3Futures.withIOExceptions(attributes);
+    }
+
+    private CompletableFuture<FileAttributes> getImplicitDirectoryAttributesAsync(String path) {
+        return findFirstObjectAsync(path).thenCompose(first -> {
+            if (first.isEmpty()) {
+                return CompletableFuture.failedFuture(new FileNotFoundException());
             }
-            return builder
+            // there is no marker to read the attributes from, we use the ones of the first object inside the directory
+            HeadObjectResponse head = HeadObjectResponse.builder()
+                .contentLength(0L)
+                .contentType(DIRECTORY_CONTENT_TYPE)
+                .lastModified(first.get().lastModified())
                 .build();
-        } catch (NoSuchKeyException exception) {
-            throw new FileNotFoundException();
-        } catch (AwsServiceException exception) {
-            throw new IOException(exception);
-        }
+            return CompletableFuture.completedFuture(S3FileAttributes.builder()
+                .fileName(fileName(path))
+                .head(head)
+                .isDirectory(true)
+                .build());
+        });
     }
 
     @Override
@@ -343,6 +1116,14 @@ public class S3Storage implements S3Config, StorageInterface {
         return createUri(uri.getPath());
     }
 
+    /**
+     * Stores a file without blocking the caller. Reading the given input stream is blocking,
+     * so the upload runs on a virtual thread, with the same concurrency limit as {@link #put(String, String, URI, StorageObject)}.
+     */
+    public CompletableFuture<URI> putAsync(String tenantId, @Nullable String namespace, URI uri, StorageObject storageObject) {
+        return callAsync(() -> put(tenantId, namespace, uri, storageObject));
+    }
+
     @Override
     public URI putInstanceResource(@Nullable String namespace, URI uri, StorageObject storageObject) throws IOException {
         String path = getPath(uri);
@@ -351,16 +1132,9 @@ public class S3Storage implements S3Config, StorageInterface {
     }
 
     private void put(StorageObject storageObject, String path) throws IOException {
-        try (
-            InputStream data = storageObject.inputStream();
-            S3TransferManager transferManager = S3TransferManager.builder().s3Client(s3AsyncClient).build()
-        ) {
+        try (InputStream data = storageObject.inputStream()) {
+            Map<String, String> metadata = MetadataUtils.toStoredMetadata(storageObject.metadata());
             mkdirs(path);
-            PutObjectRequest request = PutObjectRequest.builder()
-                .bucket(this.getBucket())
-                .key(path)
-                .metadata(MetadataUtils.toStoredMetadata(storageObject.metadata()))
-                .build();
 
             // Only use a known content length from a previous S3 GetObject response.
             // Do NOT use InputStream.available() as it is unreliable and may return 0
@@ -370,18 +1144,62 @@ public class S3Storage implements S3Config, StorageInterface {
                 contentLength = getObjectResponse.contentLength();
             }
 
-            UploadRequest uploadRequest = UploadRequest.builder()
-                .putObjectRequest(request)
-                .requestBody(
-                    AsyncRequestBody.fromInputStream(
-                        data,
-                        contentLength,
-                        Executors.newSingleThreadExecutor()
-                    )
-                )
-                .build();
+            // the permit is taken before reading ahead, so that the buffered payloads are bounded by the upload concurrency
+            uploadPermits.acquire();
+            try {
+                // read ahead to find out if the payload is small enough to be sent with a single request of known length,
+                // otherwise what was read is sent before the rest of the stream
+                InputStream body = data;
+                byte[] smallPayload = null;
+                if (singlePartUploadThreshold > 0 && (contentLength == null || contentLength <= singlePartUploadThreshold)) {
+                    byte[] head = data.readNBytes(singlePartUploadThreshold + 1);
+                    if (head.length <= singlePartUploadThreshold) {
+                        smallPayload = head;
+                    } else {
+                        body = new SequenceInputStream(new ByteArrayInputStream(head), data);
+                    }
+                }
+
+                // only files of known size are compressed, so that the original size can be recorded in their metadata
+                Long originalSize = smallPayload != null ? Long.valueOf(smallPayload.length) : contentLength;
+                if (originalSize != null && originalSize >= compressionMinSize && isCompressible(path)) {
+                    metadata = S3Compression.compressedMetadata(metadata, originalSize);
+                    if (smallPayload != null) {
+                        smallPayload = S3Compression.compress(smallPayload);
+                    } else {
+                        body = S3Compression.compress(body);
+                        contentLength = null;
+                    }
+                }
 
-            transferManager.upload(uploadRequest).completionFuture().get();
+                PutObjectRequest request = PutObjectRequest.builder()
+                    .bucket(this.getBucket())
+                    .key(s3Key(path))
+                    .metadata(metadata)
+                    .checksumAlgorithm(checksumPolicy.algorithm())
+                    .build();
+
+                if (smallPayload != null) {
+                    s3Client.putObject(request, RequestBody.fromInputStream(new ByteArrayInputStream(smallPayload), smallPayload.length));
+                } else {
+                    UploadRequest uploadRequest = UploadRequest.builder()
+                        .putObjectRequest(request)
+                        .requestBody(
+                            AsyncRequestBody.fromInputStream(
+                                body,
+                                contentLength,
+                                uploadExecutor
+                            )
+                        )
+                        .build();
+                    // each part of a multipart upload is a request
+                    paced(s3Key(path), uploadPartCount(contentLength), () -> transferManager.upload(uploadRequest).completionFuture())
+                        .get();
+                }
+            } finally {
+                uploadPermits.release();
+                forgetObject(path);
+            }
 
         } catch (AwsServiceException exception) {
             throw new IOException(exception);
@@ -390,19 +1208,44 @@ public class S3Storage implements S3Config, StorageInterface {
         }
     }
 
-    @Override
-    public boolean delete(String tenantId, @Nullable String namespace, URI uri) throws IOException {
-        FileAttributes fileAttributes;
-        try {
-            fileAttributes = getAttributes(tenantId, namespace, uri);
-        } catch (FileNotFoundException e) {
+    /**
+     * Returns whether the file is compressed when stored with the current configuration, the minimum size apart.
+     */
+    private boolean isCompressible(String path) {
+        if (compression == CompressionCodec.NONE) {
             return false;
         }
-        if (fileAttributes.getType() == FileAttributes.FileType.Directory) {
-            deleteByPrefix(tenantId, namespace, uri.getPath().endsWith("/") ? uri : URI.create(uri + "/"));
+        if (compressedExtensions.isEmpty()) {
+            return true;
         }
+        String fileName = fileName(path);
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && compressedExtensions.contains(fileName.substring(dot + 1).toLowerCase());
+    }
+
+    @Override
+    public boolean delete(String tenantId, @Nullable String namespace, URI uri) throws IOException {
+        return S3Futures.await(deleteAsync(tenantId, namespace, uri));
+    }
 
-        return deleteSingleObject(getPath(tenantId, uri));
+    /**
+     * Deletes a file, or a directory and everything it contains, without blocking the caller.
+     * A file is deleted with a single request on the async client, the content of a directory on a virtual thread.
+     */
+    public CompletableFuture<Boolean> deleteAsync(String tenantId, @Nullable String namespace, URI uri) {
+        String path = getPath(tenantId, uri);
+        return getAttributesAsync(path)
+            .thenCompose(fileAttributes -> {
+                if (fileAttributes.getType() == FileAttributes.FileType.Directory) {
+                    return callAsync(() -> deleteByPrefix(tenantId, namespace, uri.getPath().endsWith("/") ? uri : URI.create(uri + "/")))
+                        .thenCompose(deleted -> deleteSingleObjectAsync(path));
+                }
+                return deleteSingleObjectAsync(path);
+            })
+            .exceptionallyCompose(throwable -> S3Futures.unwrap(throwable) instanceof FileNotFoundException
+                ? CompletableFuture.completedFuture(false)
+                : CompletableFuture.failedFuture(S3Futures.unwrap(throwable))
+            );
     }
 
     @Override
@@ -422,16 +1265,25 @@ public class S3Storage implements S3Config, StorageInterface {
     }
 
     private boolean deleteSingleObject(String path) {
+        return S3Futures.join(deleteSingleObjectAsync(path));
+    }
+
+    private CompletableFuture<Boolean> deleteSingleObjectAsync(String path) {
+        if (path.endsWith("/")) {
+            forgetDirectories(path);
+        }
+        forgetObject(path);
+
         if (s3FilesCompatible) {
-            return deleteAllVersions(path);
+            return callAsync(() -> deleteAllVersions(path));
         }
 
         DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
             .bucket(this.getBucket())
-            .key(path)
+            .key(s3Key(path))
             .build();
 
-        return s3Client.deleteObject(deleteRequest).sdkHttpResponse().isSuccessful();
+        return s3AsyncClient.deleteObject(deleteRequest).thenApply(response -> response.sdkHttpResponse().isSuccessful());
     }
 
     private void enableBucketVersioning() throws IOException {
@@ -468,7 +1320,7 @@ public class S3Storage implements S3Config, StorageInterface {
                 for (ObjectVersion v : response.versions()) {
                     if (Objects.equals(v.key(), key)) {
                         toDelete.add(ObjectIdentifier.builder().key(v.key()).versionId(v.versionId()).build());
-                        if (toDelete.size() >= S3_MAX_DELETE_BATCH_SIZE) {
+                        if (toDelete.size() >= S3BatchDeleter.MAX_BATCH_SIZE) {
                             flushVersionBatch(toDelete);
                         }
                     }
@@ -476,7 +1328,7 @@ public class S3Storage implements S3Config, StorageInterface {
                 for (DeleteMarkerEntry dm : response.deleteMarkers()) {
                     if (Objects.equals(dm.key(), key)) {
                         toDelete.add(ObjectIdentifier.builder().key(dm.key()).versionId(dm.versionId()).build());
-                        if (toDelete.size() >= S3_MAX_DELETE_BATCH_SIZE) {
+                        if (toDelete.size() >= S3BatchDeleter.MAX_BATCH_SIZE) {
                             flushVersionBatch(toDelete);
                         }
                     }
@@ -522,38 +1374,88 @@ public class S3Storage implements S3Config, StorageInterface {
         mkdirs(path);
         PutObjectRequest putRequest = PutObjectRequest.builder()
             .bucket(this.getBucket())
-            .key(path)
+            .key(s3Key(path))
             .build();
         s3Client.putObject(putRequest, RequestBody.empty());
+        forgetObject(path);
+        rememberDirectory(path);
     }
 
     private void mkdirs(String path) throws IOException {
+        if (implicitDirectories) {
+            return;
+        }
+
         if (!path.endsWith("/")) {
             path = path.substring(0, path.lastIndexOf("/") + 1);
         }
 
         // check if it exists before creating it
+        if (isKnownDirectory(path)) {
+            return;
+        }
         if (exists(path)) {
+            rememberDirectory(path);
             return;
         }
 
         String[] directories = path.split("/");
         StringBuilder aggregatedPath = new StringBuilder();
         try {
-            // perform 1 put request per parent directory in the path
+            // perform 1 put request per parent directory in the path that is not already known to exist
             for (String directory : directories) {
                 aggregatedPath.append(directory).append("/");
+                String directoryPath = aggregatedPath.toString();
+                if (isKnownDirectory(directoryPath)) {
+                    continue;
+                }
                 PutObjectRequest putRequest = PutObjectRequest.builder()
                     .bucket(this.getBucket())
-                    .key(aggregatedPath.toString())
+                    .key(s3Key(directoryPath))
                     .build();
                 s3Client.putObject(putRequest, RequestBody.empty());
+                forgetObject(directoryPath);
+                rememberDirectory(directoryPath);
             }
         } catch (AwsServiceException | SdkClientException exception) {
             throw new IOException(exception);
         }
     }
 
+    private boolean isKnownDirectory(String path) {
+        return directoryCache != null && directoryCache.get(path) != null;
+    }
+
+    private void rememberDirectory(String path) {
+        if (directoryCache != null) {
+            directoryCache.put(path, Boolean.TRUE);
+        }
+    }
+
+    private void forgetDirectories(String prefix) {
+        if (directoryCache != null) {
+            directoryCache.invalidatePrefix(prefix);
+        }
+    }
+
+    private void forgetObject(String path) {
+        if (attributeCache != null) {
+            attributeCache.invalidate(path);
+        }
+        if (diskCache != null) {
+            diskCache.invalidate(path);
+        }
+    }
+
+    private void forgetObjectsByPrefix(String prefix) {
+        if (attributeCache != null) {
+            attributeCache.invalidatePrefix(prefix);
+        }
+        if (diskCache != null) {
+            diskCache.invalidatePrefix(prefix);
+        }
+    }
+
     @Override
     public URI move(String tenantId, @Nullable String namespace, URI from, URI to) throws IOException {
         String source = getPath(tenantId, from);
@@ -561,30 +1463,9 @@ public class S3Storage implements S3Config, StorageInterface {
         try {
             FileAttributes attributes = getAttributes(tenantId, namespace, from);
             if (attributes.getType() == FileAttributes.FileType.Directory) {
-                String continuationToken = null;
-                do {
-                    ListObjectsV2Request.Builder listRequestBuilder = ListObjectsV2Request.builder()
-                        .bucket(this.getBucket())
-                        .prefix(source);
-                    if (continuationToken != null) {
-                        listRequestBuilder.continuationToken(continuationToken);
-                    }
-
-                    ListObjectsV2Response listResponse = s3Client.listObjectsV2(listRequestBuilder.build());
-                    continuationToken = listResponse.isTruncated() ? listResponse.nextContinuationToken() : null;
-
-                    List<S3Object> objects = listResponse.contents();
-                    if (objects.isEmpty() && continuationToken == null) {
-                        throw new FileNotFoundException(to + " (Not Found)");
-                    }
-
-                    for (S3Object object : objects) {
-                        String newKey = dest + object.key().substring(source.length());
-                        move(object.key(), newKey);
-                    }
-
-                } while (continuationToken != null);
+                moveDirectory(source, dest, to);
             } else {
+                mkdirs(dest);
                 move(source, dest);
             }
 
@@ -594,15 +1475,137 @@ public class S3Storage implements S3Config, StorageInterface {
         }
     }
 
-    private void move(String oldKey, String newKey) {
+    /**
+     * Moves a file or a directory without blocking the caller. The copies are sent on the async client,
+     * and are orchestrated on a virtual thread.
+     */
+    public CompletableFuture<URI> moveAsync(String tenantId, @Nullable String namespace, URI from, URI to) {
+        return callAsync(() -> move(tenantId, namespace, from, to));
+    }
+
+    /**
+     * Moves every object under the source prefix. The copies are sent concurrently on the async client,
+     * and the copied source keys are deleted in batches while the next copies are running.
+     * A source key is only deleted once its copy succeeded, the failed copies are reported once all the others are done.
+     */
+    private void moveDirectory(String source, String dest, URI to) throws IOException {
+        Semaphore permits = new Semaphore(moveConcurrency);
+        Queue<String> copiedKeys = new ConcurrentLinkedQueue<>();
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        S3BatchDeleter deleter = s3FilesCompatible ? null : new S3BatchDeleter(s3AsyncClient, this.getBucket(), deleteConcurrency, rateLimiter);
+
+        long count = 0;
+        try (Stream<S3Object> objects = listAllObjects(source)) {
+            Iterator<S3Object> iterator = objects.iterator();
+            while (iterator.hasNext()) {
+                String oldKey = iterator.next().key();
+                String newKey = dest + oldKey.substring(source.length());
+                count++;
+
+                acquire(permits, 1);
+                copy(oldKey, newKey).whenComplete((response, throwable) -> {
+                    if (throwable == null) {
+                        copiedKeys.add(oldKey);
+                    } else {
+                        failures.put(oldKey, throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                    }
+                    permits.release();
+                });
+                deleteCopiedKeys(copiedKeys, deleter);
+            }
+        } finally {
+            // wait for the pending copies, even on failure, so no source key is left behind once copied
+            acquire(permits, moveConcurrency);
+        }
+
+        if (count == 0) {
+            throw new FileNotFoundException(to + " (Not Found)");
+        }
+
+        deleteCopiedKeys(copiedKeys, deleter);
+        if (deleter != null) {
+            deleter.complete();
+        }
+        forgetDirectories(source);
+        forgetObjectsByPrefix(source);
+
+        if (!failures.isEmpty()) {
+            String reported = failures.entrySet().stream()
+                .limit(10)
+                .map(failure -> failure.getKey() + " (" + failure.getValue().getMessage() + ")")
+                .collect(Collectors.joining(", "));
+            throw new IOException("Failed to move " + failures.size() + " of " + count + " object(s) from " + source + " to " + dest +
+                ", the other ones were moved: " + reported + (failures.size() > 10 ? ", ..." : ""));
+        }
+    }
+
+    private void deleteCopiedKeys(Queue<String> copiedKeys, @Nullable S3BatchDeleter deleter) throws IOException {
+        String key;
+        while ((key = copiedKeys.poll()) != null) {
+            if (deleter != null) {
+                deleter.delete(s3Key(key));
+            } else {
+                deleteSingleObject(key);
+            }
+        }
+    }
+
+    /**
+     * Copies an object server-side through the transfer manager: small objects are copied with a single CopyObject request,
+     * larger ones with UploadPartCopy requests sent in parallel, which also lifts the 5 GB limit of CopyObject.
+     */
+    private CompletableFuture<CompletedCopy> copy(String oldKey, String newKey) {
+        return copyObject(s3Key(oldKey), s3Key(newKey))
+            .whenComplete((response, throwable) -> {
+                forgetObject(newKey);
+                if (throwable == null && newKey.endsWith("/")) {
+                    rememberDirectory(newKey);
+                }
+            });
+    }
+
+    private CompletableFuture<CompletedCopy> copyObject(String sourceKey, String destinationKey) {
         CopyObjectRequest copyRequest = CopyObjectRequest.builder()
             .sourceBucket(this.getBucket())
-            .sourceKey(oldKey)
+            .sourceKey(sourceKey)
             .destinationBucket(this.getBucket())
-            .destinationKey(newKey)
+            .destinationKey(destinationKey)
             .build();
-        s3Client.copyObject(copyRequest);
+        return paced(destinationKey, 1, () -> transferManager.copy(CopyRequest.builder().copyObjectRequest(copyRequest).build()).completionFuture());
+    }
+
+    /**
+     * Sends a request of the transfer manager once the rate limiter, if any, allows the given number of requests for the key.
+     */
+    private <T> CompletableFuture<T> paced(String key, int permits, Supplier<CompletableFuture<T>> request) {
+        if (rateLimiter == null) {
+            return request.get();
+        }
+        return S3ThrottlingAsyncClient.paced(rateLimiter, key, permits, request);
+    }
 
+    /**
+     * Returns the number of requests of a multipart upload of the given size, at least one when the size is unknown.
+     */
+    private int uploadPartCount(@Nullable Long contentLength) {
+        if (contentLength == null) {
+            return 1;
+        }
+        long partSize = multipartPartSize != null ? multipartPartSize : DEFAULT_MULTIPART_PART_SIZE;
+        return (int) Math.clamp((contentLength + partSize - 1) / partSize, 1, MAX_MULTIPART_PART_COUNT);
+    }
+
+    private static void acquire(Semaphore permits, int count) throws IOException {
+        try {
+            permits.acquire(count);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private void move(String oldKey, String newKey) {
+        S3Futures.join(copy(oldKey, newKey));
         deleteSingleObject(oldKey);
     }
 
@@ -613,44 +1616,126 @@ public class S3Storage implements S3Config, StorageInterface {
     }
 
     private List<URI> deleteByPrefix(String tenantId, String path) throws IOException {
+        forgetDirectories(path);
+        forgetObjectsByPrefix(path);
         if (s3FilesCompatible) {
             return deleteByPrefixVersioned(tenantId, path);
         }
-        ListObjectsRequest listRequest = ListObjectsRequest.builder()
-            .bucket(this.getBucket())
-            .prefix(path)
-            .build();
-        ListObjectsResponse objectListing = s3Client.listObjects(listRequest);
-
-        @SuppressWarnings("unchecked")
-        List<S3Object> s3Objects = objectListing.getValueForField("Contents", List.class).get();
 
-        List<ObjectIdentifier> keys = s3Objects.stream()
-            .map(S3Object::key)
-            .map(ObjectIdentifier.builder()::key)
-            .map(SdkBuilder::build)
-            .toList();
+        S3BatchDeleter deleter = new S3BatchDeleter(s3AsyncClient, this.getBucket(), deleteConcurrency, rateLimiter);
+        try (Stream<S3Object> objects = listAllObjects(path)) {
+            Iterator<S3Object> iterator = objects.iterator();
+            while (iterator.hasNext()) {
+                deleter.delete(s3Key(iterator.next().key()));
+            }
+            return deleter.complete().stream()
+                .map(keyLayout::toLogical)
+                .map(k -> (k.endsWith("/")) ? k.substring(0, k.length() - 1) : k)
+                .map(k -> createUri(removeTenant(tenantId, k)))
+                .toList();
+        } catch (AwsServiceException | SdkClientException exception) {
+            throw new IOException(exception);
+        } finally {
+            // the directories created while the prefix was deleted may have lost their marker
+            forgetDirectories(path);
+        }
+    }
 
-        DeleteObjectsRequest deleteRequest = DeleteObjectsRequest.builder()
+    /**
+     * Returns whether there is no object under the root path, apart from the marker of the storage.
+     */
+    private boolean isRootEmpty() throws IOException {
+        ListObjectsV2Request request = ListObjectsV2Request.builder()
             .bucket(this.getBucket())
-            .delete(builder -> builder.objects(keys))
+            .prefix(keyLayout.root())
+            .maxKeys(2)
             .build();
-
-        if (keys.isEmpty()) {
-            return new ArrayList<>();
+        try {
+            String markerKey = keyLayout.root() + S3StorageMarker.NAME;
+            return s3Client.listObjectsV2(request).contents().stream().allMatch(object -> object.key().equals(markerKey));
+        } catch (AwsServiceException | SdkClientException exception) {
+            throw new IOException(exception);
         }
+    }
 
+    /**
+     * Moves the objects stored with another number of key shards to their key in the current layout, for example after
+     * enabling the shards on an existing bucket. Only the objects under the configured path are moved, and nothing else
+     * should use the storage meanwhile. The objects are moved shard by shard while they are listed: the ones which are
+     * already in place, including the ones moved to a shard before it is listed, are skipped, so an interrupted migration
+     * can be started again. When migrating from unsharded keys, the first segment of the keys under the path must not
+     * look like a shard id.
+     *
+     * @return the number of objects moved
+     */
+    private long migrateKeyShards(S3KeyLayout previousLayout) throws IOException {
+        String markerKey = keyLayout.root() + S3StorageMarker.NAME;
+        Semaphore permits = new Semaphore(moveConcurrency);
+        Queue<String> copiedKeys = new ConcurrentLinkedQueue<>();
+        Map<String, Throwable> failures = new ConcurrentHashMap<>();
+        S3BatchDeleter deleter = new S3BatchDeleter(s3AsyncClient, this.getBucket(), deleteConcurrency, rateLimiter);
+
+        long count = 0;
         try {
-            DeleteObjectsResponse result = s3Client.deleteObjects(deleteRequest);
+            for (String prefix : previousLayout.toPhysicalPrefixes(keyLayout.root())) {
+                ListObjectsV2Request request = ListObjectsV2Request.builder()
+                    .bucket(this.getBucket())
+                    .prefix(prefix)
+                    .build();
+                try (S3ListingPages pages = new S3ListingPages(s3AsyncClient, request)) {
+                    while (pages.hasNext()) {
+                        for (S3Object object : pages.next().contents()) {
+                            String sourceKey = object.key();
+                            if (sourceKey.equals(markerKey) || !previousLayout.isSharded() && keyLayout.isPhysical(sourceKey)) {
+                                continue;
+                            }
+                            String destinationKey = keyLayout.toPhysical(previousLayout.toLogical(sourceKey));
+                            if (destinationKey.equals(sourceKey)) {
+                                continue;
+                            }
+                            count++;
+
+                            acquire(permits, 1);
+                            copyObject(sourceKey, destinationKey).whenComplete((response, throwable) -> {
+                                if (throwable == null) {
+                                    copiedKeys.add(sourceKey);
+                                } else {
+                                    failures.put(sourceKey, throwable instanceof CompletionException ? throwable.getCause() : throwable);
+                                }
+                                permits.release();
+                            });
+
+                            String copiedKey;
+                            while ((copiedKey = copiedKeys.poll()) != null) {
+                                deleter.delete(copiedKey);
+                            }
+                        }
+                    }
+                } catch (AwsServiceException | SdkClientException exception) {
+                    throw new IOException(exception);
+                }
+            }
+        } finally {
+            acquire(permits, moveConcurrency);
+        }
 
-            return result.deleted().stream()
-                .map(DeletedObject::key)
-                .map(k -> (k.endsWith("/")) ? k.substring(0, k.length() - 1) : k)
-                .map(k -> createUri(removeTenant(tenantId, k)))
-                .toList();
-        } catch (AwsServiceException exception) {
-            throw new IOException(exception);
+        String copiedKey;
+        while ((copiedKey = copiedKeys.poll()) != null) {
+            deleter.delete(copiedKey);
+        }
+        deleter.complete();
+        forgetDirectories(keyLayout.root());
+        forgetObjectsByPrefix(keyLayout.root());
+
+        if (!failures.isEmpty()) {
+            String reported = failures.entrySet().stream()
+                .limit(10)
+                .map(failure -> failure.getKey() + " (" + failure.getValue().getMessage() + ")")
+                .collect(Collectors.joining(", "));
+            throw new IOException("Failed to migrate " + failures.size() + " of " + count + " object(s), the other ones were moved: "
+                + reported + (failures.size() > 10 ? ", ..." : ""));
         }
+        return count;
     }
 
     private List<URI> deleteByPrefixVersioned(String tenantId, String path) throws IOException {
@@ -676,14 +1761,14 @@ public class S3Storage implements S3Config, StorageInterface {
                 for (ObjectVersion v : response.versions()) {
                     toDelete.add(ObjectIdentifier.builder().key(v.key()).versionId(v.versionId()).build());
                     flushedKeys.add(v.key());
-                    if (toDelete.size() >= S3_MAX_DELETE_BATCH_SIZE) {
+                    if (toDelete.size() >= S3BatchDeleter.MAX_BATCH_SIZE) {
                         flushVersionBatch(toDelete);
                     }
                 }
                 for (DeleteMarkerEntry dm : response.deleteMarkers()) {
                     toDelete.add(ObjectIdentifier.builder().key(dm.key()).versionId(dm.versionId()).build());
                     flushedKeys.add(dm.key());
-                    if (toDelete.size() >= S3_MAX_DELETE_BATCH_SIZE) {
+                    if (toDelete.size() >= S3BatchDeleter.MAX_BATCH_SIZE) {
                         flushVersionBatch(toDelete);
                     }
                 }
@@ -700,6 +1785,115 @@ public class S3Storage implements S3Config, StorageInterface {
         }
     }
 
+    /**
+     * Stores several files, with at most {@code bulkConcurrency} uploads in flight.
+     *
+     * @return the result of each file, in the order of the given map
+     */
+    public Map<URI, S3BulkResult<URI>> putAll(String tenantId, @Nullable String namespace, Map<URI, StorageObject> storageObjects) throws IOException {
+        return bulk(storageObjects.keySet(), uri -> putAsync(tenantId, namespace, uri, storageObjects.get(uri)));
+    }
+
+    /**
+     * Gets and reads several files, with at most {@code bulkConcurrency} of them being downloaded and read at once.
+     * Each file is passed to the reader on a virtual thread as soon as its response is received, and its input stream
+     * is closed once the reader returns, so that no more than {@code bulkConcurrency} streams are open at the same time.
+     *
+     * @return the value read from each file, in the order of the given URIs
+     */
+    public <T> Map<URI, S3BulkResult<T>> getAll(String tenantId, @Nullable String namespace, Collection<URI> uris, S3ObjectReader<T> reader) throws IOException {
+        return bulk(uris, uri -> readAsync(getWithMetadataAsync(tenantId, namespace, uri), reader));
+    }
+
+    private <T> CompletableFuture<T> readAsync(CompletableFuture<StorageObject> storageObject, S3ObjectReader<T> reader) {
+        CompletableFuture<T> read = storageObject.thenApplyAsync(object -> {
+            try (InputStream ignored = object.inputStream()) {
+                return reader.read(object);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, asyncExecutor);
+        read.whenComplete((value, throwable) -> {
+            if (read.isCancelled()) {
+                // the reader may never run, so the stream it would have read is closed here
+                storageObject.thenAccept(S3Storage::closeQuietly);
+            }
+        });
+        return read;
+    }
+
+    private static void closeQuietly(StorageObject storageObject) {
+        try {
+            storageObject.inputStream().close();
+        } catch (IOException e) {
+            LOG.debug("Failed to close the stream of a cancelled read", e);
+        }
+    }
+
+    /**
+     * Checks if several files exist, with at most {@code bulkConcurrency} requests in flight.
+     *
+     * @return the result of each file, in the order of the given URIs
+     */
+    public Map<URI, S3BulkResult<Boolean>> existsAll(String tenantId, @Nullable String namespace, Collection<URI> uris) throws IOException {
+        return bulk(uris, uri -> existsAsync(tenantId, namespace, uri));
+    }
+
+    /**
+     * Gets the attributes of several files, with at most {@code bulkConcurrency} requests in flight.
+     *
+     * @return the result of each file, in the order of the given URIs
+     */
+    public Map<URI, S3BulkResult<FileAttributes>> getAttributesAll(String tenantId, @Nullable String namespace, Collection<URI> uris) throws IOException {
+        return bulk(uris, uri -> getAttributesAsync(tenantId, namespace, uri));
+    }
+
+    /**
+     * Starts the operation of each URI as soon as less than {@code bulkConcurrency} are in flight, then waits for all of them.
+     * The failure of an item doesn't stop the others, it is reported in its result. If the caller is interrupted
+     * while waiting to start an operation, the started ones are cancelled.
+     */
+    private <T> Map<URI, S3BulkResult<T>> bulk(Collection<URI> uris, Function<URI, CompletableFuture<T>> operation) throws IOException {
+        Semaphore permits = new Semaphore(bulkConcurrency);
+        Map<URI, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        try {
+            for (URI uri : uris) {
+                acquire(permits, 1);
+                CompletableFuture<T> future;
+                try {
+                    future = operation.apply(uri);
+                } catch (RuntimeException e) {
+                    future = CompletableFuture.failedFuture(e);
+                }
+                future.whenComplete((value, throwable) -> permits.release());
+                futures.put(uri, future);
+            }
+        } catch (IOException e) {
+            futures.values().forEach(future -> future.cancel(true));
+            throw e;
+        }
+
+        Map<URI, S3BulkResult<T>> results = new LinkedHashMap<>();
+        futures.forEach((uri, future) -> results.put(uri, future
+            .handle((value, throwable) -> throwable == null ? new S3BulkResult<T>(value, null) : new S3BulkResult<T>(null, S3Futures.unwrap(throwable)))
+            .join()
+        ));
+        return results;
+    }
+
+    /**
+     * Runs a blocking operation on a virtual thread, so that it doesn't hold one of the caller's threads.
+     */
+    private <T> CompletableFuture<T> callAsync(Callable<T> callable) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return callable.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, asyncExecutor);
+    }
+
     private static String removeTenant(String tenantId, String k) {
         return tenantId == null ? "/" + k : k.replaceFirst(tenantId, "");
     }
@@ -710,6 +1904,26 @@ public class S3Storage implements S3Config, StorageInterface {
 
     @Override
     public void close() {
+        if (this.uploadExecutor != null) {
+            this.uploadExecutor.shutdown();
+        }
+
+        if (this.diskCache != null) {
+            this.diskCache.close();
+        }
+
+        if (this.asyncExecutor != null) {
+            this.asyncExecutor.shutdown();
+        }
+
+        if (this.transferManager != null) {
+            try {
+                this.transferManager.close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close S3Storage", e);
+            }
+        }
+
         if (this.s3Client != null) {
             try {
                 this.s3Client.close();
@@ -725,5 +1939,14 @@ public class S3Storage implements S3Config, StorageInterface {
                 LOG.warn("Failed to close S3Storage", e);
             }
         }
+
+        // the clients don't close the credentials provider they were given
+        if (this.credentialsProvider instanceof SdkAutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                LOG.warn("Failed to close S3Storage", e);
+            }
+        }
     }
 }
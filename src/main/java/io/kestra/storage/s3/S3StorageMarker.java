@@ -0,0 +1,71 @@
+package io.kestra.storage.s3;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * An empty object stored under the root path, whose metadata records how the objects of the storage were written,
+ * so that they are still read correctly once the configuration changes.
+ * It is hidden from the listings of the storage.
+ *
+ * A storage without marker has unsharded and uncompressed objects, so that storages created before it need none.
+ *
+ * @param compressed whether some objects may have been stored compressed
+ * @param keyShards the number of key shards the objects are stored with
+ */
+record S3StorageMarker(boolean compressed, int keyShards) {
+    static final String NAME = ".kestra-storage";
+    private static final String COMPRESSED = "compressed";
+    private static final String KEY_SHARDS = "key-shards";
+
+    static final S3StorageMarker NONE = new S3StorageMarker(false, 0);
+
+    /**
+     * Reads the marker stored under the given root, or returns {@link #NONE} if there is none.
+     */
+    static S3StorageMarker read(S3Client s3Client, String bucket, String root) throws IOException {
+        try {
+            Map<String, String> metadata = s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(bucket)
+                .key(root + NAME)
+                .build()
+            ).metadata();
+            String keyShards = metadata.get(KEY_SHARDS);
+            return new S3StorageMarker(Boolean.parseBoolean(metadata.get(COMPRESSED)), keyShards == null ? 0 : Integer.parseInt(keyShards));
+        } catch (NoSuchKeyException e) {
+            return NONE;
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                // the bucket doesn't exist yet
+                return NONE;
+            }
+            throw new IOException(e);
+        } catch (AwsServiceException | SdkClientException e) {
+            throw new IOException(e);
+        }
+    }
+
+    void write(S3Client s3Client, String bucket, String root) throws IOException {
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put(COMPRESSED, String.valueOf(compressed));
+        metadata.put(KEY_SHARDS, String.valueOf(keyShards));
+        try {
+            s3Client.putObject(
+                PutObjectRequest.builder().bucket(bucket).key(root + NAME).metadata(metadata).build(),
+                RequestBody.empty()
+            );
+        } catch (AwsServiceException | SdkClientException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package io.kestra.storage.s3;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.services.s3.DelegatingS3AsyncClient;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.S3Request;
+
+/**
+ * Paces the requests of an async client with a {@link S3RateLimiter}, and reports the throttled ones to it.
+ * <p>
+ * The AWS CRT client has no execution interceptors, so its requests are delayed here, without blocking the caller,
+ * until the rate limiter allows them. Unlike with the interceptor of the synchronous client, the retries made by the
+ * client are not paced. Requests which don't target a key or a prefix, like bucket operations, are not limited.
+ */
+final class S3ThrottlingAsyncClient extends DelegatingS3AsyncClient {
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final S3RateLimiter rateLimiter;
+
+    S3ThrottlingAsyncClient(S3AsyncClient delegate, S3RateLimiter rateLimiter) {
+        super(delegate);
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    protected <T extends S3Request, ReturnT> CompletableFuture<ReturnT> invokeOperation(T request, Function<T, CompletableFuture<ReturnT>> operation) {
+        String key = S3ThrottlingInterceptor.key(request);
+        if (key == null) {
+            return operation.apply(request);
+        }
+        return paced(rateLimiter, key, 1, () -> operation.apply(request));
+    }
+
+    /**
+     * Sends the given request once the rate limiter allows as many requests for the key, and reports it if S3 throttled it.
+     * Cancelling the returned future cancels the request, or prevents it from being sent.
+     */
+    static <T> CompletableFuture<T> paced(S3RateLimiter rateLimiter, String key, int permits, Supplier<CompletableFuture<T>> request) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable send = () -> {
+            if (result.isDone()) {
+                return;
+            }
+            CompletableFuture<T> sent;
+            try {
+                sent = request.get();
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+                return;
+            }
+            sent.whenComplete((response, throwable) -> {
+                if (throwable == null) {
+                    result.complete(response);
+                    return;
+                }
+                // S3 answers 503 Slow Down when a prefix receives more requests than it can currently handle
+                if (S3Futures.unwrap(throwable) instanceof S3Exception s3Exception && s3Exception.statusCode() == SERVICE_UNAVAILABLE) {
+                    rateLimiter.onThrottled(key);
+                }
+                result.completeExceptionally(S3Futures.unwrap(throwable));
+            });
+            result.whenComplete((response, throwable) -> {
+                if (result.isCancelled()) {
+                    sent.cancel(true);
+                }
+            });
+        };
+
+        long waitNanos = rateLimiter.reserve(key, permits);
+        if (waitNanos > 0) {
+            CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS).execute(send);
+        } else {
+            send.run();
+        }
+        return result;
+    }
+}
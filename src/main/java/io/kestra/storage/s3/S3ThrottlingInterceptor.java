@@ -0,0 +1,51 @@
+package io.kestra.storage.s3;
+
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+
+/**
+ * Paces each attempt of the requests of a client with a {@link S3RateLimiter}, and reports the throttled ones to it.
+ * Requests which don't target a key or a prefix, like bucket operations, are not limited.
+ */
+final class S3ThrottlingInterceptor implements ExecutionInterceptor {
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    private final S3RateLimiter rateLimiter;
+
+    S3ThrottlingInterceptor(S3RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        String key = key(context.request());
+        if (key == null) {
+            return;
+        }
+
+        try {
+            rateLimiter.acquire(key, 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw AbortedException.create("Interrupted while waiting to send a request for " + key, e);
+        }
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        // S3 answers 503 Slow Down when a prefix receives more requests than it can currently handle
+        String key = key(context.request());
+        if (key != null && context.httpResponse().statusCode() == SERVICE_UNAVAILABLE) {
+            rateLimiter.onThrottled(key);
+        }
+    }
+
+    static String key(SdkRequest request) {
+        return request.getValueForField("Key", String.class)
+            .or(() -> request.getValueForField("Prefix", String.class))
+            .orElse(null);
+    }
+}
@@ -0,0 +1,45 @@
+package io.kestra.storage.s3;
+
+import java.util.List;
+
+import org.testcontainers.containers.localstack.LocalStackContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import static org.testcontainers.containers.localstack.LocalStackContainer.Service.S3;
+
+/**
+ * The LocalStack container shared by all the test classes of a JVM, started on first use and stopped with the JVM.
+ */
+final class LocalStackFixture {
+    static final String BUCKET = "kestra-unit-test";
+
+    private static LocalStackContainer localstack;
+
+    private LocalStackFixture() {
+    }
+
+    static synchronized LocalStackContainer localstack() {
+        if (localstack == null) {
+            localstack = new LocalStackContainer(DockerImageName.parse("localstack/localstack:3.8.1"))
+                .withServices(S3);
+            // some tests use a real flow with hardcoded configuration, so we have to fix the binding port
+            localstack.setPortBindings(List.of("4566:4566"));
+            localstack.start();
+        }
+        return localstack;
+    }
+
+    /**
+     * Returns a builder of a storage on the test bucket, under the "kestra" path.
+     */
+    static S3Storage.S3StorageBuilder storageBuilder() {
+        LocalStackContainer container = localstack();
+        return S3Storage.builder()
+            .accessKey(container.getAccessKey())
+            .secretKey(container.getSecretKey())
+            .bucket(BUCKET)
+            .region(container.getRegion())
+            .endpoint(container.getEndpoint().toString())
+            .path("kestra");
+    }
+}
@@ -1,12 +1,23 @@
 package io.kestra.storage.s3;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Path;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import io.kestra.core.storage.StorageTestSuite;
+import io.kestra.core.tenant.TenantService;
+import io.kestra.core.utils.IdUtils;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 
 class S3FilesStorageTest extends StorageTestSuite {
 
@@ -20,4 +31,27 @@ class S3FilesStorageTest extends StorageTestSuite {
             .build();
         storageInterface.init();
     }
+
+    @Test
+    void shouldReadRanges() throws IOException {
+        URI uri = URI.create("/" + IdUtils.create() + "/range.txt");
+        storageInterface.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("0123456789".getBytes()));
+        S3FilesStorage s3FilesStorage = (S3FilesStorage) storageInterface;
+
+        try (InputStream range = s3FilesStorage.get(TenantService.MAIN_TENANT, null, uri, 2, 3)) {
+            assertThat(new String(range.readAllBytes()), is("234"));
+        }
+        try (InputStream tail = s3FilesStorage.get(TenantService.MAIN_TENANT, null, uri, 8, 100)) {
+            assertThat(new String(tail.readAllBytes()), is("89"));
+        }
+        try (InputStream unbounded = s3FilesStorage.get(TenantService.MAIN_TENANT, null, uri, 4, Long.MAX_VALUE)) {
+            assertThat(new String(unbounded.readAllBytes()), is("456789"));
+        }
+
+        try (SeekableByteChannel channel = s3FilesStorage.newByteChannel(TenantService.MAIN_TENANT, null, uri)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            channel.position(6).read(buffer);
+            assertThat(new String(buffer.array()), is("6789"));
+        }
+    }
 }
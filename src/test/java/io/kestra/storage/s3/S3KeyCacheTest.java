@@ -0,0 +1,31 @@
+package io.kestra.storage.s3;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class S3KeyCacheTest {
+    @Test
+    void shouldNotCacheAValueLoadedBeforeAnInvalidation() {
+        S3KeyCache<String> cache = new S3KeyCache<>(10, Duration.ofMinutes(1));
+
+        Object load = cache.startLoad("kestra/main/file.txt");
+        cache.invalidate("kestra/main/file.txt");
+        assertThat(cache.putLoaded("kestra/main/file.txt", load, "stale"), is(false));
+        assertThat(cache.peek("kestra/main/file.txt"), nullValue());
+
+        Object prefixLoad = cache.startLoad("kestra/main/dir/file.txt");
+        cache.invalidatePrefix("kestra/main/dir/");
+        assertThat(cache.putLoaded("kestra/main/dir/file.txt", prefixLoad, "stale"), is(false));
+
+        // only the last of concurrent loads is cached
+        Object first = cache.startLoad("kestra/main/file.txt");
+        Object second = cache.startLoad("kestra/main/file.txt");
+        assertThat(cache.putLoaded("kestra/main/file.txt", first, "first"), is(false));
+        assertThat(cache.putLoaded("kestra/main/file.txt", second, "second"), is(true));
+        assertThat(cache.peek("kestra/main/file.txt"), is("second"));
+    }
+}
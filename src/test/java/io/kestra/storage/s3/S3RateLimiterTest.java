@@ -0,0 +1,66 @@
+package io.kestra.storage.s3;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class S3RateLimiterTest {
+    @Test
+    void shouldLimitEachPrefixIndependently() {
+        S3RateLimiter rateLimiter = new S3RateLimiter(100, 3);
+
+        assertThat(rateLimiter.prefix("kestra/main/company/team/file.txt"), is("kestra/main/company/"));
+        assertThat(rateLimiter.prefix("kestra/main"), is("kestra/main"));
+
+        // a second of burst is available, then requests have to wait for the rate
+        assertThat(rateLimiter.reserve("kestra/main/company/file.txt", 100), is(0L));
+        assertThat(rateLimiter.reserve("kestra/main/company/file.txt", 50), greaterThan(400_000_000L));
+        assertThat(rateLimiter.reserve("kestra/main/other/file.txt", 100), is(0L));
+    }
+
+    @Test
+    void shouldHalveTheRateOnceWhenThrottled() {
+        S3RateLimiter rateLimiter = new S3RateLimiter(100, 3);
+
+        rateLimiter.onThrottled("kestra/main/company/a.txt");
+        rateLimiter.onThrottled("kestra/main/company/b.txt");
+
+        assertThat(rateLimiter.throttledCount(), is(2L));
+        assertThat(rateLimiter.rate("kestra/main/company/c.txt"), closeTo(50, 1));
+        assertThat(rateLimiter.rate("kestra/main/other/c.txt"), is(100.0));
+    }
+
+    @Test
+    void shouldPaceTheRequestsOfTheAsyncClient() throws Exception {
+        S3RateLimiter rateLimiter = new S3RateLimiter(10, 3);
+        String key = "kestra/main/company/file.txt";
+        assertThat(rateLimiter.reserve(key, 10), is(0L));
+
+        // sent once a permit is available, about a tenth of a second later
+        long start = System.nanoTime();
+        assertThat(S3ThrottlingAsyncClient.paced(rateLimiter, key, 1, () -> CompletableFuture.completedFuture("sent")).get(), is("sent"));
+        assertThat(System.nanoTime() - start, greaterThan(50_000_000L));
+
+        // a request cancelled while it waits is never sent
+        AtomicBoolean sent = new AtomicBoolean();
+        CompletableFuture<String> cancelled = S3ThrottlingAsyncClient.paced(rateLimiter, key, 1, () -> {
+            sent.set(true);
+            return CompletableFuture.completedFuture("sent");
+        });
+        cancelled.cancel(true);
+        Thread.sleep(300);
+        assertThat(sent.get(), is(false));
+
+        // a throttled request is reported
+        S3Exception slowDown = (S3Exception) S3Exception.builder().statusCode(503).message("Slow Down").build();
+        CompletableFuture<String> throttled = S3ThrottlingAsyncClient.paced(rateLimiter, key, 1, () -> CompletableFuture.failedFuture(slowDown));
+        assertThat(throttled.handle((response, throwable) -> S3Futures.unwrap(throwable)).get(), sameInstance((Throwable) slowDown));
+        assertThat(rateLimiter.throttledCount(), is(1L));
+    }
+}
@@ -0,0 +1,144 @@
+package io.kestra.storage.s3;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.kestra.core.tenant.TenantService;
+import io.kestra.core.utils.IdUtils;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.DownloadRequest;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
+
+import static io.kestra.storage.s3.LocalStackFixture.storageBuilder;
+
+/**
+ * Compares the latency of reads and writes through the different paths of the storage.
+ * Run with {@code ./gradlew benchmark}, it is excluded from the regular test task.
+ */
+@Tag("benchmark")
+class S3StorageBenchmarkTest {
+    private static final Logger LOG = LoggerFactory.getLogger(S3StorageBenchmarkTest.class);
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 500;
+
+    @BeforeAll
+    static void createBucket() throws IOException {
+        S3Storage storage = storageBuilder().build();
+        storage.init();
+        try {
+            storage.createBucket();
+        } catch (IOException ignored) {
+            // already created by another test of the JVM
+        }
+        storage.close();
+    }
+
+    @Test
+    void smallFileGetLatency() throws IOException {
+        S3Storage singleRequest = storage(8 * 1024 * 1024, 8 * 1024 * 1024);
+        S3Storage transferManager = storage(0, 8 * 1024 * 1024);
+
+        URI uri = URI.create("/" + IdUtils.create() + "/small.json");
+        singleRequest.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream(new byte[512]));
+
+        report("transfer manager", measure(() -> read(transferManager, uri)));
+        report("single request", measure(() -> read(singleRequest, uri)));
+
+        singleRequest.close();
+        transferManager.close();
+    }
+
+    @Test
+    void transferManagerPutAndGetLatency() throws IOException {
+        // every put and get goes through the transfer manager shared by the storage
+        S3Storage storage = storage(0, 0);
+        byte[] content = new byte[64 * 1024];
+        URI uri = URI.create("/" + IdUtils.create() + "/file.bin");
+        String key = "kestra/" + TenantService.MAIN_TENANT + uri.getPath();
+
+        report("put, shared transfer manager", measure(() -> storage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream(content))));
+        report("get, shared transfer manager", measure(() -> read(storage, uri)));
+
+        // the same requests with a transfer manager created for each of them
+        AwsCredentialsProvider credentialsProvider = S3ClientFactory.getCredentials(storage);
+        try (S3AsyncClient s3AsyncClient = S3ClientFactory.getAsyncS3Client(storage, credentialsProvider)) {
+            report("put, transfer manager per request", measure(() -> {
+                try (S3TransferManager perRequest = S3TransferManager.builder().s3Client(s3AsyncClient).build()) {
+                    perRequest.upload(UploadRequest.builder()
+                        .putObjectRequest(request -> request.bucket(LocalStackFixture.BUCKET).key(key))
+                        .requestBody(AsyncRequestBody.fromBytes(content))
+                        .build()
+                    ).completionFuture().join();
+                }
+            }));
+            report("get, transfer manager per request", measure(() -> {
+                try (S3TransferManager perRequest = S3TransferManager.builder().s3Client(s3AsyncClient).build()) {
+                    perRequest.download(DownloadRequest.builder()
+                        .getObjectRequest(request -> request.bucket(LocalStackFixture.BUCKET).key(key))
+                        .responseTransformer(AsyncResponseTransformer.toBytes())
+                        .build()
+                    ).completionFuture().join().result().asByteArray();
+                }
+            }));
+        }
+
+        storage.close();
+    }
+
+    private static S3Storage storage(int singleRequestDownloadThreshold, int singlePartUploadThreshold) throws IOException {
+        S3Storage storage = storageBuilder()
+            .singleRequestDownloadThreshold(singleRequestDownloadThreshold)
+            .singlePartUploadThreshold(singlePartUploadThreshold)
+            // without parallel ranges, the objects which are not read with a single request go through the transfer manager
+            .parallelDownloadPrefetch(0)
+            .build();
+        storage.init();
+        return storage;
+    }
+
+    private static long[] measure(Operation operation) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            operation.run();
+        }
+
+        long[] latencies = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    private static void read(S3Storage storage, URI uri) throws IOException {
+        try (InputStream inputStream = storage.get(TenantService.MAIN_TENANT, null, uri)) {
+            inputStream.readAllBytes();
+        }
+    }
+
+    private static void report(String name, long[] sortedLatencies) {
+        LOG.info(
+            "{}: p50={}ms p99={}ms",
+            name,
+            String.format("%.2f", sortedLatencies[sortedLatencies.length / 2] / 1_000_000.0),
+            String.format("%.2f", sortedLatencies[(int) (sortedLatencies.length * 0.99)] / 1_000_000.0)
+        );
+    }
+
+    private interface Operation {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,67 @@
+package io.kestra.storage.s3;
+
+import java.io.*;
+import java.net.URI;
+
+import org.junit.jupiter.api.*;
+
+import io.kestra.core.storage.StorageTestSuite;
+import io.kestra.core.storages.FileAttributes;
+import io.kestra.core.tenant.TenantService;
+import io.kestra.core.utils.IdUtils;
+
+import software.amazon.awssdk.services.s3.model.*;
+
+import static io.kestra.storage.s3.LocalStackFixture.storageBuilder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs the storage test suite without directory markers, directories only existing through the keys under them.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class S3StorageImplicitDirectoriesTest extends StorageTestSuite {
+    @BeforeAll
+    void initStorage() throws IOException {
+        storageInterface = storageBuilder()
+            .implicitDirectories(true)
+            .build();
+        storageInterface.init();
+    }
+
+    @AfterAll
+    void closeStorage() {
+        ((S3Storage) storageInterface).close();
+    }
+
+    @BeforeEach
+    void createBucket() {
+        try {
+            ((S3Storage) storageInterface).createBucket();
+        } catch (IOException ignored) {
+        }
+    }
+
+    @Test
+    void shouldNotWriteParentDirectoryMarkers() throws IOException {
+        String prefix = IdUtils.create();
+        URI fileUri = URI.create("/" + prefix + "/dir/file.txt");
+        storageInterface.put(TenantService.MAIN_TENANT, null, fileUri, new ByteArrayInputStream("data".getBytes()));
+
+        ListObjectsV2Response response = ((S3Storage) storageInterface).getS3ClientForTest().listObjectsV2(
+            ListObjectsV2Request.builder()
+                .bucket(LocalStackFixture.BUCKET)
+                .prefix("kestra/" + TenantService.MAIN_TENANT + "/" + prefix + "/")
+                .build()
+        );
+        assertThat(response.contents().stream().map(S3Object::key).toList(), everyItem(not(endsWith("/"))));
+
+        URI dirUri = URI.create("/" + prefix + "/dir");
+        assertThat(storageInterface.getAttributes(TenantService.MAIN_TENANT, null, dirUri).getType(), is(FileAttributes.FileType.Directory));
+        assertThat(storageInterface.exists(TenantService.MAIN_TENANT, null, URI.create("/" + prefix + "/dir/")), is(true));
+        assertThat(storageInterface.list(TenantService.MAIN_TENANT, null, URI.create("/" + prefix)), hasSize(1));
+
+        storageInterface.delete(TenantService.MAIN_TENANT, null, dirUri);
+        assertThat(storageInterface.exists(TenantService.MAIN_TENANT, null, fileUri), is(false));
+    }
+}
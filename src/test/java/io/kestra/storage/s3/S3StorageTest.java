@@ -2,55 +2,47 @@ package io.kestra.storage.s3;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
 
 import org.junit.jupiter.api.*;
-import org.testcontainers.containers.localstack.LocalStackContainer;
-import org.testcontainers.utility.DockerImageName;
+import org.junit.jupiter.api.io.TempDir;
 
 import io.kestra.core.storage.StorageTestSuite;
+import io.kestra.core.storages.FileAttributes;
 import io.kestra.core.storages.StorageInterface;
+import io.kestra.core.storages.StorageObject;
 import io.kestra.core.tenant.TenantService;
 import io.kestra.core.utils.IdUtils;
 
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.services.s3.model.*;
 
+import static io.kestra.storage.s3.LocalStackFixture.storageBuilder;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
-import static org.testcontainers.containers.localstack.LocalStackContainer.Service.S3;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class S3StorageTest extends StorageTestSuite {
     StorageInterface storageInterface;
 
-    private static LocalStackContainer localstack;
-
     @BeforeAll
-    void startLocalstack() throws IOException {
-        localstack = new LocalStackContainer(DockerImageName.parse("localstack/localstack:3.8.1"))
-            .withServices(S3);
-        // some tests use a real flow with hardcoded configuration, so we have to fix the binding port
-        localstack.setPortBindings(java.util.List.of("4566:4566"));
-        localstack.start();
-
-        storageInterface = S3Storage.builder()
-            .accessKey(localstack.getAccessKey())
-            .secretKey(localstack.getSecretKey())
-            .bucket("kestra-unit-test")
-            .region(localstack.getRegion())
-            .endpoint(localstack.getEndpoint().toString())
-            .path("kestra")
-            .build();
+    void initStorage() throws IOException {
+        storageInterface = storageBuilder().build();
         storageInterface.init();
     }
 
-    @AfterAll
-    void stopLocalstack() {
-        if (localstack != null) {
-            localstack.stop();
-        }
-    }
-
     @BeforeEach
     void createBucket() {
         try {
@@ -89,6 +81,82 @@ class S3StorageTest extends StorageTestSuite {
 
         assertThat("Should list all files across paginated S3 responses", uris.size(), is(fileCount));
         assertThat("All listed URIs should point to the right folder", uris, everyItem(hasToString(startsWith("kestra:///" + prefix + "/"))));
+
+        try (Stream<URI> stream = ((S3Storage) storageInterface).streamByPrefix(TenantService.MAIN_TENANT, null, folderUri, false)) {
+            assertThat("Streaming should return the same URIs", stream.toList(), is(uris));
+        }
+
+        var deleted = storageInterface.deleteByPrefix(TenantService.MAIN_TENANT, null, folderUri);
+        assertThat("Should delete all files and the folder across several batches", deleted, hasSize(fileCount + 1));
+        assertThat(storageInterface.allByPrefix(TenantService.MAIN_TENANT, null, folderUri, true), is(empty()));
+    }
+
+    @Test
+    void shouldListNestedPrefixesConcurrently() throws IOException {
+        try (S3Storage parallelStorage = storageBuilder()
+            .listingConcurrency(4)
+            .build()) {
+            parallelStorage.init();
+
+            String prefix = IdUtils.create();
+            for (int i = 0; i < 20; i++) {
+                URI uri = URI.create("/" + prefix + "/dir-" + (i % 4) + "/sub-" + (i % 2) + "/file-" + i + ".txt");
+                parallelStorage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream(("file " + i).getBytes()));
+            }
+
+            URI folderUri = URI.create("/" + prefix + "/");
+            var files = parallelStorage.allByPrefix(TenantService.MAIN_TENANT, null, folderUri, false);
+            assertThat(files, hasSize(20));
+            assertThat(files, hasItem(URI.create("kestra:///" + prefix + "/dir-3/sub-1/file-19.txt")));
+
+            var filesAndDirectories = parallelStorage.allByPrefix(TenantService.MAIN_TENANT, null, folderUri, true);
+            assertThat(filesAndDirectories, hasSize(20 + 4 + 8));
+
+            assertThat(parallelStorage.deleteByPrefix(TenantService.MAIN_TENANT, null, folderUri), hasSize(20 + 4 + 8 + 1));
+            assertThat(parallelStorage.allByPrefix(TenantService.MAIN_TENANT, null, folderUri, true), is(empty()));
+        }
+    }
+
+    @Test
+    void shouldMoveAndDeleteConcurrentlyListedPrefixesWithoutMarkers() throws IOException {
+        try (S3Storage parallelStorage = storageBuilder()
+            .implicitDirectories(true)
+            .listingConcurrency(4)
+            .build()) {
+            parallelStorage.init();
+
+            String prefix = IdUtils.create();
+            for (int i = 0; i < 12; i++) {
+                URI uri = URI.create("/" + prefix + "/source/dir-" + (i % 3) + "/file-" + i + ".txt");
+                parallelStorage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream(("file " + i).getBytes()));
+            }
+
+            // the directories only exist as common prefixes, there is no object to copy for them
+            parallelStorage.move(TenantService.MAIN_TENANT, null, URI.create("/" + prefix + "/source"), URI.create("/" + prefix + "/target"));
+            URI target = URI.create("/" + prefix + "/target/");
+            assertThat(parallelStorage.allByPrefix(TenantService.MAIN_TENANT, null, target, false), hasSize(12));
+            assertThat(parallelStorage.allByPrefix(TenantService.MAIN_TENANT, null, URI.create("/" + prefix + "/source/"), true), is(empty()));
+
+            List<URI> deleted = parallelStorage.deleteByPrefix(TenantService.MAIN_TENANT, null, target);
+            assertThat(deleted, hasSize(12));
+            assertThat(deleted, everyItem(hasToString(endsWith(".txt"))));
+            assertThat(parallelStorage.allByPrefix(TenantService.MAIN_TENANT, null, target, true), is(empty()));
+        }
+    }
+
+    @Test
+    void shouldListOnlyDirectChildren() throws IOException {
+        String prefix = IdUtils.create();
+        storageInterface.put(TenantService.MAIN_TENANT, null, URI.create("/" + prefix + "/root.txt"), new ByteArrayInputStream("root".getBytes()));
+        for (int i = 0; i < 10; i++) {
+            URI uri = URI.create("/" + prefix + "/nested/level-" + i + "/file.txt");
+            storageInterface.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream(("file " + i).getBytes()));
+        }
+
+        List<FileAttributes> list = storageInterface.list(TenantService.MAIN_TENANT, null, URI.create("/" + prefix));
+
+        assertThat(list.stream().map(FileAttributes::getFileName).toList(), containsInAnyOrder("root.txt", "nested"));
+        assertThat(list.stream().filter(f -> f.getFileName().equals("nested")).findFirst().orElseThrow().getType(), is(FileAttributes.FileType.Directory));
     }
 
     @Test
@@ -112,32 +180,625 @@ class S3StorageTest extends StorageTestSuite {
         // Check that all files exist at the destination
         var destinationUris = storageInterface.allByPrefix(TenantService.MAIN_TENANT, null, targetUri, false);
         assertThat("All files should have been moved", destinationUris.size(), is(fileCount));
+        try (InputStream moved = storageInterface.get(TenantService.MAIN_TENANT, null, URI.create("/" + targetPrefix + "/file-1199.txt"))) {
+            assertThat(new String(moved.readAllBytes()), is("data-1199"));
+        }
 
         // Check that the original files no longer exist
         var sourceFiles = storageInterface.allByPrefix(TenantService.MAIN_TENANT, null, sourceUri, false);
         assertThat("Source directory should be empty after move", sourceFiles, is(empty()));
     }
 
+    @Test
+    void shouldMoveFileLargerThanPartSize() throws IOException {
+        String prefix = IdUtils.create();
+        URI source = URI.create("/" + prefix + "/large.bin");
+        URI target = URI.create("/" + prefix + "/moved/large.bin");
+        // larger than the default part size so it's copied with several UploadPartCopy requests
+        byte[] content = new byte[20 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        storageInterface.put(TenantService.MAIN_TENANT, null, source, new ByteArrayInputStream(content));
+
+        storageInterface.move(TenantService.MAIN_TENANT, null, source, target);
+
+        assertThat(storageInterface.exists(TenantService.MAIN_TENANT, null, source), is(false));
+        try (InputStream moved = storageInterface.get(TenantService.MAIN_TENANT, null, target)) {
+            assertThat(moved.readAllBytes(), is(content));
+        }
+    }
+
+    @Test
+    void shouldReadLargeFileWithParallelRanges() throws IOException {
+        URI uri = URI.create("/" + IdUtils.create() + "/large.bin");
+        byte[] content = new byte[5 * 1024 * 1024 + 123];
+        new Random(7).nextBytes(content);
+        storageInterface.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream(content));
+
+        for (int singleRequestDownloadThreshold : List.of(0, 1024 * 1024)) {
+            try (S3Storage rangedStorage = storageBuilder()
+                .singleRequestDownloadThreshold(singleRequestDownloadThreshold)
+                .parallelDownloadPartSize(1024 * 1024)
+                .parallelDownloadPrefetch(2)
+                .build()) {
+                rangedStorage.init();
+
+                try (InputStream inputStream = rangedStorage.get(TenantService.MAIN_TENANT, null, uri)) {
+                    assertThat(inputStream.readAllBytes(), is(content));
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldSwitchToMultipartUploadAboveTheSinglePartThreshold() throws IOException {
+        try (S3Storage thresholdStorage = storageBuilder()
+            .singlePartUploadThreshold(1024)
+            .uploadConcurrency(1)
+            .build()) {
+            thresholdStorage.init();
+
+            String prefix = IdUtils.create();
+            for (int size : List.of(1024, 1025)) {
+                URI uri = URI.create("/" + prefix + "/file-" + size + ".bin");
+                byte[] content = new byte[size];
+                new Random(size).nextBytes(content);
+                thresholdStorage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream(content));
+
+                try (InputStream inputStream = thresholdStorage.get(TenantService.MAIN_TENANT, null, uri)) {
+                    assertThat(inputStream.readAllBytes(), is(content));
+                }
+                // the ETag of an object uploaded in parts ends with its number of parts
+                HeadObjectResponse head = thresholdStorage.getS3ClientForTest().headObject(HeadObjectRequest.builder()
+                    .bucket("kestra-unit-test")
+                    .key("kestra/" + TenantService.MAIN_TENANT + uri)
+                    .build());
+                assertThat(head.eTag().contains("-"), is(size > 1024));
+            }
+        }
+    }
+
+    @Test
+    void shouldReadRangesOfAFileOverwrittenSinceItsAttributesWereCached() throws IOException {
+        try (S3Storage cachingStorage = storageBuilder()
+            .attributeCacheSize(100)
+            .attributeCacheTtl(Duration.ofMinutes(1))
+            .singleRequestDownloadThreshold(0)
+            .parallelDownloadPartSize(1024)
+            .build()) {
+            cachingStorage.init();
+
+            URI uri = URI.create("/" + IdUtils.create() + "/file.txt");
+            storageInterface.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("a".repeat(4096).getBytes()));
+            assertThat(cachingStorage.getAttributes(TenantService.MAIN_TENANT, null, uri).getSize(), is(4096L));
+
+            // written by another storage, so the cached ETag no longer matches the object
+            storageInterface.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("b".repeat(3000).getBytes()));
+            try (InputStream inputStream = cachingStorage.get(TenantService.MAIN_TENANT, null, uri)) {
+                assertThat(new String(inputStream.readAllBytes()), is("b".repeat(3000)));
+            }
+            try (SeekableByteChannel channel = cachingStorage.newByteChannel(TenantService.MAIN_TENANT, null, uri)) {
+                assertThat(channel.size(), is(3000L));
+            }
+        }
+    }
+
+    @Test
+    void shouldReadRanges() throws IOException {
+        URI uri = URI.create("/" + IdUtils.create() + "/range.txt");
+        storageInterface.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("0123456789".getBytes()));
+        S3Storage s3Storage = (S3Storage) storageInterface;
+
+        try (InputStream range = s3Storage.get(TenantService.MAIN_TENANT, null, uri, 2, 3)) {
+            assertThat(new String(range.readAllBytes()), is("234"));
+        }
+        try (InputStream tail = s3Storage.get(TenantService.MAIN_TENANT, null, uri, 8, 100)) {
+            assertThat(new String(tail.readAllBytes()), is("89"));
+        }
+        try (InputStream unbounded = s3Storage.get(TenantService.MAIN_TENANT, null, uri, 4, Long.MAX_VALUE)) {
+            assertThat(new String(unbounded.readAllBytes()), is("456789"));
+        }
+        try (InputStream afterEnd = s3Storage.get(TenantService.MAIN_TENANT, null, uri, 20, 5)) {
+            assertThat(afterEnd.readAllBytes().length, is(0));
+        }
+
+        try (SeekableByteChannel channel = s3Storage.newByteChannel(TenantService.MAIN_TENANT, null, uri)) {
+            assertThat(channel.size(), is(10L));
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            channel.position(6).read(buffer);
+            assertThat(new String(buffer.array()), is("6789"));
+            assertThat(channel.read(ByteBuffer.allocate(1)), is(-1));
+        }
+    }
+
+    @Test
+    void shouldServeReadsFromTheLocalCache(@TempDir Path cacheDirectory) throws IOException {
+        // the files which are not the ones of the cache are kept
+        Path unrelated = Files.writeString(cacheDirectory.resolve("unrelated.txt"), "unrelated");
+        Path cacheFiles;
+        try (S3Storage cachingStorage = storageBuilder()
+            .localCacheDirectory(cacheDirectory.toString())
+            .build()) {
+            cachingStorage.init();
+            try (var files = Files.list(cacheDirectory)) {
+                cacheFiles = files.filter(Files::isDirectory).findFirst().orElseThrow();
+            }
+            assertThat(cacheFiles.getFileName().toString(), startsWith("kestra-s3-cache-"));
+
+            URI uri = URI.create("/" + IdUtils.create() + "/script.py");
+            cachingStorage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("first".getBytes()));
+            for (int i = 0; i < 2; i++) {
+                try (InputStream inputStream = cachingStorage.get(TenantService.MAIN_TENANT, null, uri)) {
+                    assertThat(new String(inputStream.readAllBytes()), is("first"));
+                }
+            }
+            try (var files = Files.list(cacheFiles)) {
+                assertThat(files.count(), is(1L));
+            }
+
+            // a change made by another writer is detected by the conditional request, and replaces the cached file
+            storageInterface.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("second".getBytes()));
+            try (InputStream inputStream = cachingStorage.get(TenantService.MAIN_TENANT, null, uri)) {
+                assertThat(new String(inputStream.readAllBytes()), is("second"));
+            }
+            try (var files = Files.list(cacheFiles)) {
+                assertThat(files.count(), is(1L));
+            }
+
+            cachingStorage.delete(TenantService.MAIN_TENANT, null, uri);
+            try (var files = Files.list(cacheFiles)) {
+                assertThat(files.count(), is(0L));
+            }
+        }
+        assertThat(Files.exists(cacheFiles), is(false));
+        assertThat(Files.readString(unrelated), is("unrelated"));
+    }
+
+    @Test
+    void shouldRunOperationsAsynchronously() throws Exception {
+        S3Storage s3Storage = (S3Storage) storageInterface;
+        String prefix = IdUtils.create();
+        URI uri = URI.create("/" + prefix + "/async.txt");
+        URI moved = URI.create("/" + prefix + "/moved.txt");
+
+        s3Storage.putAsync(TenantService.MAIN_TENANT, null, uri, new StorageObject(null, new ByteArrayInputStream("async".getBytes()))).get();
+        assertThat(s3Storage.existsAsync(TenantService.MAIN_TENANT, null, uri).get(), is(true));
+        assertThat(s3Storage.getAttributesAsync(TenantService.MAIN_TENANT, null, uri).get().getSize(), is(5L));
+        try (InputStream inputStream = s3Storage.getWithMetadataAsync(TenantService.MAIN_TENANT, null, uri).get().inputStream()) {
+            assertThat(new String(inputStream.readAllBytes()), is("async"));
+        }
+
+        s3Storage.moveAsync(TenantService.MAIN_TENANT, null, uri, moved).get();
+        assertThat(s3Storage.listAsync(TenantService.MAIN_TENANT, null, URI.create("/" + prefix)).get().stream().map(FileAttributes::getFileName).toList(), contains("moved.txt"));
+
+        assertThat(s3Storage.deleteAsync(TenantService.MAIN_TENANT, null, moved).get(), is(true));
+        assertThat(s3Storage.deleteAsync(TenantService.MAIN_TENANT, null, moved).get(), is(false));
+        var failure = Assertions.assertThrows(
+            ExecutionException.class,
+            () -> s3Storage.getAttributesAsync(TenantService.MAIN_TENANT, null, moved).get()
+        );
+        assertThat(failure.getCause(), instanceOf(FileNotFoundException.class));
+
+        // a missing bucket is a configuration error, not a missing file
+        try (S3Storage missingBucketStorage = storageBuilder()
+            .bucket("kestra-missing-bucket")
+            .build()) {
+            missingBucketStorage.init();
+            IOException missingBucket = Assertions.assertThrows(IOException.class, () -> missingBucketStorage.get(TenantService.MAIN_TENANT, null, uri));
+            assertThat(missingBucket, not(instanceOf(FileNotFoundException.class)));
+        }
+    }
+
+    @Test
+    void shouldRunBulkOperations() throws IOException {
+        S3Storage s3Storage = (S3Storage) storageInterface;
+        String prefix = IdUtils.create();
+        Map<URI, StorageObject> files = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            files.put(URI.create("/" + prefix + "/file-" + i + ".txt"), new StorageObject(null, new ByteArrayInputStream(("file " + i).getBytes())));
+        }
+        URI missing = URI.create("/" + prefix + "/missing.txt");
+
+        var puts = s3Storage.putAll(TenantService.MAIN_TENANT, null, files);
+        assertThat(puts.values().stream().allMatch(S3BulkResult::isSuccessful), is(true));
+
+        List<URI> uris = new ArrayList<>(files.keySet());
+        uris.add(missing);
+        var exists = s3Storage.existsAll(TenantService.MAIN_TENANT, null, uris);
+        assertThat(exists.values().stream().filter(result -> Boolean.TRUE.equals(result.value())).count(), is(50L));
+        assertThat(exists.get(missing).value(), is(false));
+
+        var attributes = s3Storage.getAttributesAll(TenantService.MAIN_TENANT, null, uris);
+        assertThat(attributes.get(missing).failure(), instanceOf(FileNotFoundException.class));
+
+        // more files than the concurrency, the streams being closed once read
+        var contents = s3Storage.getAll(TenantService.MAIN_TENANT, null, uris, object -> new String(object.inputStream().readAllBytes()));
+        assertThat(contents.get(uris.get(7)).value(), is("file 7"));
+        assertThat(contents.values().stream().filter(S3BulkResult::isSuccessful).count(), is(50L));
+        assertThat(contents.get(missing).failure(), instanceOf(FileNotFoundException.class));
+    }
+
+    @Test
+    void shouldCacheAttributesUntilTheyAreWritten() throws IOException {
+        try (S3Storage cachingStorage = storageBuilder()
+            .attributeCacheSize(100)
+            .build()) {
+            cachingStorage.init();
+
+            URI uri = URI.create("/" + IdUtils.create() + "/file.txt");
+            assertThat(cachingStorage.exists(TenantService.MAIN_TENANT, null, uri), is(false));
+            assertThat(cachingStorage.exists(TenantService.MAIN_TENANT, null, uri), is(false));
+            assertThat(cachingStorage.attributeCacheHitCount(), is(1L));
+
+            // the put must invalidate the missing entry
+            cachingStorage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("content".getBytes()));
+            assertThat(cachingStorage.exists(TenantService.MAIN_TENANT, null, uri), is(true));
+            long misses = cachingStorage.attributeCacheMissCount();
+            assertThat(cachingStorage.getAttributes(TenantService.MAIN_TENANT, null, uri).getSize(), is(7L));
+            assertThat(cachingStorage.attributeCacheMissCount(), is(misses));
+
+            // reading the file only looks up its size in the cache, without counting it as a hit
+            long hits = cachingStorage.attributeCacheHitCount();
+            try (InputStream inputStream = cachingStorage.get(TenantService.MAIN_TENANT, null, uri)) {
+                assertThat(new String(inputStream.readAllBytes()), is("content"));
+            }
+            assertThat(cachingStorage.attributeCacheHitCount(), is(hits));
+
+            cachingStorage.delete(TenantService.MAIN_TENANT, null, uri);
+            assertThat(cachingStorage.exists(TenantService.MAIN_TENANT, null, uri), is(false));
+        }
+
+        try (S3Storage neverExpiringStorage = storageBuilder()
+            .attributeCacheSize(100)
+            .attributeCacheTtl(Duration.ZERO)
+            .build()) {
+            Assertions.assertThrows(IllegalArgumentException.class, neverExpiringStorage::init);
+        }
+    }
+
+    @Test
+    void shouldNotCacheTheAttributesLoadedWhileTheFileIsWritten() throws IOException {
+        try (S3Storage cachingStorage = storageBuilder().attributeCacheSize(100).build()) {
+            cachingStorage.init();
+
+            for (int i = 0; i < 20; i++) {
+                URI uri = URI.create("/" + IdUtils.create() + "/file.txt");
+                // the HeadObject request is in flight while the file is written, so it may find no file
+                CompletableFuture<Boolean> existsBeforePut = cachingStorage.existsAsync(TenantService.MAIN_TENANT, null, uri);
+                cachingStorage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("content".getBytes()));
+                existsBeforePut.join();
+
+                assertThat(cachingStorage.exists(TenantService.MAIN_TENANT, null, uri), is(true));
+            }
+        }
+    }
+
+    @Test
+    void shouldCompressAndDecompressTransparently() throws IOException {
+        // a dedicated path, as enabling compression is recorded under it
+        String root = "compressed-" + IdUtils.create();
+        String prefix = "/" + IdUtils.create();
+        String content = "{\"key\": \"value\"}\n".repeat(1000);
+        URI json = URI.create(prefix + "/file.json");
+        URI binary = URI.create(prefix + "/file.bin");
+        try (S3Storage compressingStorage = storageBuilder()
+            .path(root)
+            .compression(CompressionCodec.GZIP)
+            .build()) {
+            compressingStorage.init();
+
+            compressingStorage.put(TenantService.MAIN_TENANT, null, json, new StorageObject(Map.of("someKey", "someValue"), new ByteArrayInputStream(content.getBytes())));
+            compressingStorage.put(TenantService.MAIN_TENANT, null, binary, new ByteArrayInputStream(content.getBytes()));
+
+            HeadObjectResponse head = compressingStorage.getS3ClientForTest()
+                .headObject(HeadObjectRequest.builder().bucket("kestra-unit-test").key(root + "/" + TenantService.MAIN_TENANT + json).build());
+            assertThat(head.contentLength(), lessThan((long) content.length()));
+            assertThat(compressingStorage.getS3ClientForTest()
+                .headObject(HeadObjectRequest.builder().bucket("kestra-unit-test").key(root + "/" + TenantService.MAIN_TENANT + binary).build())
+                .contentLength(), is((long) content.length()));
+
+            FileAttributes attributes = compressingStorage.getAttributes(TenantService.MAIN_TENANT, null, json);
+            assertThat(attributes.getSize(), is((long) content.length()));
+            assertThat(attributes.getMetadata(), is(Map.of("someKey", "someValue")));
+        }
+
+        // the file is decompressed, and its size listed, whatever the configuration of the storage reading it
+        try (S3Storage plainStorage = storageBuilder()
+            .path(root)
+            .build()) {
+            plainStorage.init();
+            StorageObject storageObject = plainStorage.getWithMetadata(TenantService.MAIN_TENANT, null, json);
+            try (InputStream inputStream = storageObject.inputStream()) {
+                assertThat(new String(inputStream.readAllBytes()), is(content));
+            }
+            assertThat(storageObject.metadata(), is(Map.of("someKey", "someValue")));
+            List<FileAttributes> listed = plainStorage.list(TenantService.MAIN_TENANT, null, URI.create(prefix));
+            assertThat(listed.stream().map(FileAttributes::getSize).toList(), everyItem(is((long) content.length())));
+            Assertions.assertThrows(IOException.class, () -> plainStorage.get(TenantService.MAIN_TENANT, null, json, 0, 10));
+            Assertions.assertThrows(IOException.class, () -> plainStorage.get(TenantService.MAIN_TENANT, null, json, content.length() - 10, 10));
+            try (InputStream range = plainStorage.get(TenantService.MAIN_TENANT, null, binary, 0, 8)) {
+                assertThat(new String(range.readAllBytes()), is(content.substring(0, 8)));
+            }
+        }
+    }
+
+    @Test
+    void shouldListSizesAndDatesWithoutHeadRequests() throws IOException {
+        // a dedicated path, as the marker of a compressing storage makes the sizes loaded lazily
+        try (S3Storage cachingStorage = storageBuilder()
+            .path("plain-" + IdUtils.create())
+            .attributeCacheSize(100)
+            .attributeCacheTtl(Duration.ofMinutes(1))
+            .build()) {
+            cachingStorage.init();
+
+            String prefix = "/" + IdUtils.create();
+            for (int i = 0; i < 5; i++) {
+                cachingStorage.put(TenantService.MAIN_TENANT, null, URI.create(prefix + "/file-" + i + ".txt"), new ByteArrayInputStream("0123456789".repeat(i).getBytes()));
+            }
+
+            // each HeadObject request is an attribute cache miss
+            long misses = cachingStorage.attributeCacheMissCount();
+            List<FileAttributes> listed = cachingStorage.list(TenantService.MAIN_TENANT, null, URI.create(prefix));
+            assertThat(listed, hasSize(5));
+            assertThat(listed.stream().map(FileAttributes::getSize).toList(), containsInAnyOrder(0L, 10L, 20L, 30L, 40L));
+            assertThat(listed.stream().map(FileAttributes::getLastModifiedTime).toList(), everyItem(greaterThan(0L)));
+            assertThat(cachingStorage.attributeCacheMissCount(), is(misses));
+        }
+    }
+
+    @Test
+    void shouldRejectTheMetadataKeysReservedForCompression() {
+        for (String reservedKey : List.of("kestraCodec", "kestraOriginalSize")) {
+            URI uri = URI.create("/" + IdUtils.create() + "/file.txt");
+            StorageObject storageObject = new StorageObject(Map.of(reservedKey, "value"), new ByteArrayInputStream("content".getBytes()));
+
+            Assertions.assertThrows(IllegalArgumentException.class, () -> storageInterface.put(TenantService.MAIN_TENANT, null, uri, storageObject));
+            assertThat(storageInterface.exists(TenantService.MAIN_TENANT, null, uri), is(false));
+        }
+    }
+
+    @Test
+    void shouldListALargeCompressedDirectoryWithoutLoadingTheAttributes() throws IOException {
+        try (S3Storage compressingStorage = storageBuilder()
+            .path("compressed-" + IdUtils.create())
+            .compression(CompressionCodec.GZIP)
+            .compressionMinSize(0)
+            .attributeCacheSize(10)
+            .build()) {
+            compressingStorage.init();
+
+            String prefix = "/" + IdUtils.create();
+            int fileCount = 1001;
+            for (int i = 0; i < fileCount; i++) {
+                compressingStorage.put(TenantService.MAIN_TENANT, null, URI.create(prefix + "/file-" + i + ".json"), new ByteArrayInputStream("{}".repeat(100).getBytes()));
+            }
+
+            // each HeadObject request is an attribute cache miss
+            long misses = compressingStorage.attributeCacheMissCount();
+            List<FileAttributes> listed = compressingStorage.list(TenantService.MAIN_TENANT, null, URI.create(prefix));
+            assertThat(listed, hasSize(fileCount));
+            assertThat(listed.stream().map(FileAttributes::getType).toList(), everyItem(is(FileAttributes.FileType.File)));
+            assertThat(compressingStorage.attributeCacheMissCount(), is(misses));
+
+            // only the size which is asked for is loaded
+            assertThat(listed.getFirst().getSize(), is(200L));
+            assertThat(compressingStorage.attributeCacheMissCount(), is(misses + 1));
+        }
+    }
+
+    @Test
+    void shouldStoreTheChecksumOfThePolicy() throws IOException {
+        try (S3Storage checksumStorage = storageBuilder()
+            .checksumPolicy(ChecksumPolicy.SHA256)
+            .build()) {
+            checksumStorage.init();
+
+            URI uri = URI.create("/" + IdUtils.create() + "/file.bin");
+            checksumStorage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("content".getBytes()));
+
+            HeadObjectResponse head = checksumStorage.getS3ClientForTest().headObject(HeadObjectRequest.builder()
+                .bucket("kestra-unit-test")
+                .key("kestra/" + TenantService.MAIN_TENANT + uri)
+                .checksumMode(ChecksumMode.ENABLED)
+                .build());
+            assertThat(head.checksumSHA256(), notNullValue());
+
+            try (InputStream inputStream = checksumStorage.get(TenantService.MAIN_TENANT, null, uri)) {
+                assertThat(new String(inputStream.readAllBytes()), is("content"));
+            }
+        }
+    }
+
+    @Test
+    void shouldValidateTheChecksumOfRangedReadsOfWholeFiles() throws IOException {
+        for (ChecksumPolicy checksumPolicy : List.of(ChecksumPolicy.CRC32C, ChecksumPolicy.CRC64NVME, ChecksumPolicy.SHA256)) {
+            assertRangedReadsAreValidated(checksumPolicy);
+        }
+    }
+
+    private void assertRangedReadsAreValidated(ChecksumPolicy checksumPolicy) throws IOException {
+        // the first part of a larger file is read with a range request, and the rest with parallel ones
+        HeadObjectResponse head;
+        try (S3Storage checksumStorage = storageBuilder()
+            .checksumPolicy(checksumPolicy)
+            .validateRangedReads(true)
+            .singleRequestDownloadThreshold(16)
+            .parallelDownloadPartSize(16)
+            .build()) {
+            checksumStorage.init();
+
+            URI small = URI.create("/" + IdUtils.create() + "/small.txt");
+            URI large = URI.create("/" + IdUtils.create() + "/large.txt");
+            String largeContent = "0123456789".repeat(10);
+            checksumStorage.put(TenantService.MAIN_TENANT, null, small, new ByteArrayInputStream("content".getBytes()));
+            checksumStorage.put(TenantService.MAIN_TENANT, null, large, new ByteArrayInputStream(largeContent.getBytes()));
+
+            try (InputStream inputStream = checksumStorage.get(TenantService.MAIN_TENANT, null, small)) {
+                assertThat(new String(inputStream.readAllBytes()), is("content"));
+            }
+            try (InputStream inputStream = checksumStorage.get(TenantService.MAIN_TENANT, null, large)) {
+                assertThat(new String(inputStream.readAllBytes()), is(largeContent));
+            }
+
+            // the checksum of another content is a mismatch
+            head = checksumStorage.getS3ClientForTest().headObject(HeadObjectRequest.builder()
+                .bucket(LocalStackFixture.BUCKET)
+                .key("kestra/" + TenantService.MAIN_TENANT + large)
+                .checksumMode(ChecksumMode.ENABLED)
+                .build());
+        }
+        InputStream mismatching = new S3ChecksumValidatingInputStream(
+            new ByteArrayInputStream("content".getBytes()), checksumPolicy, "small", CompletableFuture.completedFuture(checksumPolicy.checksum(head))
+        );
+        Assertions.assertThrows(IOException.class, mismatching::readAllBytes);
+    }
+
+    @Test
+    void shouldApplyTheClientTuning() throws IOException {
+        try (S3Storage tunedStorage = storageBuilder()
+            .httpMaxConnections(4)
+            .httpConnectionTimeout(Duration.ofSeconds(5))
+            .httpSocketTimeout(Duration.ofSeconds(10))
+            .httpConnectionAcquisitionTimeout(Duration.ofSeconds(5))
+            .httpConnectionMaxIdleTime(Duration.ofSeconds(30))
+            .asyncTargetThroughputInGbps(1.0)
+            .asyncMaxConcurrency(8)
+            .asyncInitialReadBufferSize(8L * 1024 * 1024)
+            .build()) {
+            tunedStorage.init();
+
+            URI uri = URI.create("/" + IdUtils.create() + "/file.txt");
+            tunedStorage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream("content".getBytes()));
+            assertThat(tunedStorage.exists(TenantService.MAIN_TENANT, null, uri), is(true));
+        }
+
+        try (S3Storage invalidStorage = storageBuilder()
+            .httpSocketTimeout(Duration.ofSeconds(-1))
+            .build()) {
+            Assertions.assertThrows(IllegalArgumentException.class, invalidStorage::init);
+        }
+    }
+
+    @Test
+    void shouldShardKeysAndMigrateThem() throws IOException {
+        // a dedicated path, as the migration moves every key under it
+        String root = "sharded-" + IdUtils.create();
+        List<URI> uris = Stream.iterate(0, i -> i + 1).limit(20)
+            .map(i -> URI.create("/namespace/dir/file-" + i + ".txt"))
+            .toList();
+        try (S3Storage plainStorage = storageBuilder()
+            .path(root)
+            .build()) {
+            plainStorage.init();
+
+            for (URI uri : uris) {
+                plainStorage.put(TenantService.MAIN_TENANT, null, uri, new ByteArrayInputStream(uri.getPath().getBytes()));
+            }
+        }
+
+        // the existing objects are not sharded
+        try (S3Storage refusedStorage = storageBuilder()
+            .path(root)
+            .keyShards(8)
+            .build()) {
+            Assertions.assertThrows(IllegalArgumentException.class, refusedStorage::init);
+        }
+
+        try (S3Storage shardedStorage = storageBuilder()
+            .path(root)
+            .keyShards(8)
+            .migrateKeyShards(true)
+            .build()) {
+            shardedStorage.init();
+
+            // the layout is recorded, so the unsharded storage is now refused
+            try (S3Storage unshardedStorage = storageBuilder()
+                .path(root)
+                .build()) {
+                Assertions.assertThrows(IllegalArgumentException.class, unshardedStorage::init);
+            }
+
+            ListObjectsV2Response physical = shardedStorage.getS3ClientForTest().listObjectsV2(
+                ListObjectsV2Request.builder().bucket("kestra-unit-test").prefix(root + "/").delimiter("/").build()
+            );
+            assertThat(physical.commonPrefixes().size(), greaterThan(1));
+            assertThat(physical.commonPrefixes().stream().map(CommonPrefix::prefix).toList(), everyItem(matchesPattern(root + "/[0-9a-f]{2}/")));
+            assertThat(physical.contents().stream().map(S3Object::key).toList(), contains(root + "/" + S3StorageMarker.NAME));
+
+            // restarting with the same number of shards needs no migration
+            try (S3Storage restartedStorage = storageBuilder()
+                .path(root)
+                .keyShards(8)
+                .build()) {
+                restartedStorage.init();
+            }
+
+            List<FileAttributes> listed = shardedStorage.list(TenantService.MAIN_TENANT, null, URI.create("/namespace/dir"));
+            assertThat(listed.stream().map(FileAttributes::getFileName).toList(), containsInAnyOrder(uris.stream().map(uri -> uri.getPath().substring(uri.getPath().lastIndexOf('/') + 1)).toArray()));
+            assertThat(shardedStorage.list(TenantService.MAIN_TENANT, null, URI.create("/namespace")).size(), is(1));
+            assertThat(shardedStorage.allByPrefix(TenantService.MAIN_TENANT, null, URI.create("/namespace/"), false).size(), is(20));
+            try (InputStream inputStream = shardedStorage.get(TenantService.MAIN_TENANT, null, uris.getFirst())) {
+                assertThat(new String(inputStream.readAllBytes()), is(uris.getFirst().getPath()));
+            }
+
+            shardedStorage.move(TenantService.MAIN_TENANT, null, URI.create("/namespace/dir"), URI.create("/namespace/moved"));
+            assertThat(shardedStorage.exists(TenantService.MAIN_TENANT, null, URI.create("/namespace/moved/file-3.txt")), is(true));
+            assertThat(shardedStorage.deleteByPrefix(TenantService.MAIN_TENANT, null, URI.create("/namespace/")).size(), greaterThan(20));
+            assertThat(shardedStorage.allByPrefix(TenantService.MAIN_TENANT, null, URI.create("/namespace/"), true), empty());
+        }
+    }
+
+    @Test
+    void shouldRecreateParentDirectoryAfterItWasDeleted() throws IOException {
+        String prefix = IdUtils.create();
+        URI fileUri = URI.create("/" + prefix + "/dir/file.txt");
+        URI dirUri = URI.create("/" + prefix + "/dir");
+
+        storageInterface.put(TenantService.MAIN_TENANT, null, fileUri, new ByteArrayInputStream("first".getBytes()));
+        storageInterface.delete(TenantService.MAIN_TENANT, null, dirUri);
+        assertThat(storageInterface.exists(TenantService.MAIN_TENANT, null, URI.create("/" + prefix + "/dir/")), is(false));
+
+        // the directory cache must have been invalidated by the delete, so the marker is written again
+        storageInterface.put(TenantService.MAIN_TENANT, null, fileUri, new ByteArrayInputStream("second".getBytes()));
+        assertThat(storageInterface.getAttributes(TenantService.MAIN_TENANT, null, dirUri).getType(), is(FileAttributes.FileType.Directory));
+    }
+
+    @Test
+    void shouldRecreateParentDirectoryDeletedByAnotherProcessOnceExpired() throws Exception {
+        try (S3Storage cachingStorage = storageBuilder().directoryCacheTtl(Duration.ofMillis(200)).build()) {
+            cachingStorage.init();
+
+            String prefix = IdUtils.create();
+            URI dirUri = URI.create("/" + prefix + "/dir");
+            cachingStorage.put(TenantService.MAIN_TENANT, null, URI.create("/" + prefix + "/dir/first.txt"), new ByteArrayInputStream("first".getBytes()));
+
+            // another process deletes the directory marker, which this one still remembers
+            cachingStorage.getS3ClientForTest().deleteObject(DeleteObjectRequest.builder()
+                .bucket(LocalStackFixture.BUCKET)
+                .key("kestra/" + TenantService.MAIN_TENANT + "/" + prefix + "/dir/")
+                .build());
+            Thread.sleep(300);
+
+            cachingStorage.put(TenantService.MAIN_TENANT, null, URI.create("/" + prefix + "/dir/second.txt"), new ByteArrayInputStream("second".getBytes()));
+            assertThat(cachingStorage.exists(TenantService.MAIN_TENANT, null, URI.create("/" + prefix + "/dir/")), is(true));
+            assertThat(cachingStorage.getAttributes(TenantService.MAIN_TENANT, null, dirUri).getType(), is(FileAttributes.FileType.Directory));
+        }
+
+        try (S3Storage neverExpiringStorage = storageBuilder()
+            .directoryCacheTtl(Duration.ZERO)
+            .build()) {
+            Assertions.assertThrows(IllegalArgumentException.class, neverExpiringStorage::init);
+        }
+    }
+
     @Test
     void s3FilesCompatibleModeEnablesBucketVersioning() throws IOException {
-        S3Storage plain = S3Storage.builder()
-            .accessKey(localstack.getAccessKey())
-            .secretKey(localstack.getSecretKey())
-            .bucket("kestra-unit-test")
-            .region(localstack.getRegion())
-            .endpoint(localstack.getEndpoint().toString())
-            .path("kestra")
+        S3Storage plain = storageBuilder()
             .s3FilesCompatible(false)
             .build();
         plain.init(); plain.createBucket();
 
-        S3Storage compat = S3Storage.builder()
-            .accessKey(localstack.getAccessKey())
-            .secretKey(localstack.getSecretKey())
-            .bucket("kestra-unit-test")
-            .region(localstack.getRegion())
-            .endpoint(localstack.getEndpoint().toString())
-            .path("kestra")
+        S3Storage compat = storageBuilder()
             .s3FilesCompatible(true)
             .build();
         compat.init();